@@ -1,11 +1,16 @@
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 
 public abstract class ASTNode 
 {
     public abstract String toString(int indent);
+
+    /** Double dispatch: calls the visitor's visit overload for this node class. */
+    public abstract void accept(ASTVisitor visitor);
     
     protected String getIndent(int indent) 
     {
@@ -42,6 +47,12 @@ class ProgramNode extends ASTNode
 
         return funcDeclList;
     }
+
+    @Override
+    public void accept(ASTVisitor visitor)
+    {
+        visitor.visit(this);
+    }
 }
 
 class VarDeclNode extends ASTNode 
@@ -64,6 +75,12 @@ class VarDeclNode extends ASTNode
                (initExpr != null ? " = " + initExpr.toString(0) : "");
     }
 
+
+    @Override
+    public void accept(ASTVisitor visitor)
+    {
+        visitor.visit(this);
+    }
 }
 
 class FuncDeclNode extends ASTNode 
@@ -72,6 +89,7 @@ class FuncDeclNode extends ASTNode
     String name;
     List<VarDeclNode> args;
     ASTNode body;
+    boolean isStatic;   // declared 'static': internal linkage, file-local
 
     public FuncDeclNode(String retType, String name, List<VarDeclNode> args, ASTNode body) 
     {
@@ -95,12 +113,20 @@ class FuncDeclNode extends ASTNode
         String argStr = args.stream().map(a -> a.type + " " + a.name).collect(Collectors.joining(", "));
         return  "" + retType + " " + name + "(" + argStr + ")";
     }
+
+    @Override
+    public void accept(ASTVisitor visitor)
+    {
+        visitor.visit(this);
+    }
 }
 
 class StructDeclNode extends ASTNode 
 {
     String name;
     List<VarDeclNode> fields;
+    // Member name -> member type, built once at registration (see indexFields)
+    private Map<String, String> fieldIndex;
 
     public StructDeclNode(String name, List<VarDeclNode> fields) 
     {
@@ -108,6 +134,20 @@ class StructDeclNode extends ASTNode
         this.fields = fields;
     }
 
+    /** Builds the member index. The first field of a given name wins, like a linear scan. */
+    public void indexFields()
+    {
+        fieldIndex = new HashMap<>(fields.size() * 2);
+        for (VarDeclNode f : fields) fieldIndex.putIfAbsent(f.name, f.type);
+    }
+
+    /** Type of the named member, or null if the struct has no such member. */
+    public String getFieldType(String memberName)
+    {
+        if (fieldIndex == null) indexFields();
+        return fieldIndex.get(memberName);
+    }
+
     @Override
     public String toString(int indent) 
     {
@@ -116,6 +156,12 @@ class StructDeclNode extends ASTNode
         for(VarDeclNode f : fields) sb.append(f.toString(indent + 1)).append("\n");
         return sb.toString();
     }
+
+    @Override
+    public void accept(ASTVisitor visitor)
+    {
+        visitor.visit(this);
+    }
 }
 
 class TypedefDeclNode extends ASTNode 
@@ -134,6 +180,12 @@ class TypedefDeclNode extends ASTNode
     {
         return getIndent(indent) + "TypedefDecl: typedef " + baseType + " " + newTypeName;
     }
+
+    @Override
+    public void accept(ASTVisitor visitor)
+    {
+        visitor.visit(this);
+    }
 }
 
 // --- Statements ---
@@ -152,6 +204,12 @@ class BlockNode extends ASTNode
         sb.append(getIndent(indent)).append("}");
         return sb.toString();
     }
+
+    @Override
+    public void accept(ASTVisitor visitor)
+    {
+        visitor.visit(this);
+    }
 }
 
 class IfStmtNode extends ASTNode 
@@ -176,6 +234,12 @@ class IfStmtNode extends ASTNode
         }
         return s;
     }
+
+    @Override
+    public void accept(ASTVisitor visitor)
+    {
+        visitor.visit(this);
+    }
 }
 
 class WhileStmtNode extends ASTNode 
@@ -194,6 +258,12 @@ class WhileStmtNode extends ASTNode
     {
         return getIndent(indent) + "While (" + condition.toString(0) + ")\n" + body.toString(indent + 1);
     }
+
+    @Override
+    public void accept(ASTVisitor visitor)
+    {
+        visitor.visit(this);
+    }
 }
 
 class ReturnStmtNode extends ASTNode 
@@ -210,6 +280,12 @@ class ReturnStmtNode extends ASTNode
     {
         return getIndent(indent) + "Return " + (expr != null ? expr.toString(0) : "");
     }
+
+    @Override
+    public void accept(ASTVisitor visitor)
+    {
+        visitor.visit(this);
+    }
 }
 
 // --- Expressions ---
@@ -232,6 +308,12 @@ class BinaryExprNode extends ASTNode
     {
         return "(" + left.toString(0) + " " + operator + " " + right.toString(0) + ")";
     }
+
+    @Override
+    public void accept(ASTVisitor visitor)
+    {
+        visitor.visit(this);
+    }
 }
 
 class UnaryExprNode extends ASTNode 
@@ -261,6 +343,12 @@ class UnaryExprNode extends ASTNode
             return "(" + operator + expr.toString(0) + ")";
         }
     }
+
+    @Override
+    public void accept(ASTVisitor visitor)
+    {
+        visitor.visit(this);
+    }
 }
 
 class LiteralNode extends ASTNode 
@@ -279,6 +367,12 @@ class LiteralNode extends ASTNode
     {
         return value.toString();
     }
+
+    @Override
+    public void accept(ASTVisitor visitor)
+    {
+        visitor.visit(this);
+    }
 }
 
 class IdNode extends ASTNode 
@@ -295,6 +389,12 @@ class IdNode extends ASTNode
     {
         return name;
     }
+
+    @Override
+    public void accept(ASTVisitor visitor)
+    {
+        visitor.visit(this);
+    }
 }
 
 class FuncCallNode extends ASTNode 
@@ -312,6 +412,12 @@ class FuncCallNode extends ASTNode
     {
         return name + "(" + args.stream().map(a -> a.toString(0)).collect(Collectors.joining(", ")) + ")";
     }
+
+    @Override
+    public void accept(ASTVisitor visitor)
+    {
+        visitor.visit(this);
+    }
 }
 
 /** C-style cast expression: (type) expr */
@@ -329,6 +435,12 @@ class CastExprNode extends ASTNode
     public String toString(int indent) {
         return "((" + castType + ")" + expr.toString(0) + ")";
     }
+
+    @Override
+    public void accept(ASTVisitor visitor)
+    {
+        visitor.visit(this);
+    }
 }
 
 class TernaryExprNode extends ASTNode
@@ -347,4 +459,10 @@ class TernaryExprNode extends ASTNode
     public String toString(int indent) {
         return "(" + condition.toString(0) + " ? " + thenExpr.toString(0) + " : " + elseExpr.toString(0) + ")";
     }
+
+    @Override
+    public void accept(ASTVisitor visitor)
+    {
+        visitor.visit(this);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,182 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Visitor over the AST node classes, dispatched through ASTNode.accept.
+ *
+ * Every overload defaults to a no-op, so a visitor only implements the node
+ * classes it cares about. A plain visitor does not descend into children;
+ * register it with a CompositeASTVisitor to have it called for every node of
+ * a shared pre-order walk.
+ */
+public interface ASTVisitor
+{
+    default void visit(ProgramNode node) {}
+    default void visit(VarDeclNode node) {}
+    default void visit(FuncDeclNode node) {}
+    default void visit(StructDeclNode node) {}
+    default void visit(TypedefDeclNode node) {}
+    default void visit(BlockNode node) {}
+    default void visit(IfStmtNode node) {}
+    default void visit(WhileStmtNode node) {}
+    default void visit(ReturnStmtNode node) {}
+    default void visit(BinaryExprNode node) {}
+    default void visit(UnaryExprNode node) {}
+    default void visit(LiteralNode node) {}
+    default void visit(IdNode node) {}
+    default void visit(FuncCallNode node) {}
+    default void visit(CastExprNode node) {}
+    default void visit(TernaryExprNode node) {}
+}
+
+/**
+ * Runs any number of listener visitors in a single pre-order traversal.
+ *
+ * Each node is dispatched once; all listeners see it (in registration order)
+ * before its children are walked. Consumers that only need to observe nodes —
+ * e.g. the used-symbol scans of StandardLibrary and CustomLibraryResolver —
+ * share one walk instead of each traversing the whole tree.
+ */
+class CompositeASTVisitor implements ASTVisitor
+{
+    private final List<ASTVisitor> listeners = new ArrayList<>();
+
+    public CompositeASTVisitor(ASTVisitor... listeners)
+    {
+        this.listeners.addAll(Arrays.asList(listeners));
+    }
+
+    public CompositeASTVisitor add(ASTVisitor listener)
+    {
+        listeners.add(listener);
+        return this;
+    }
+
+    /** Walks the subtree rooted at node, notifying every listener. */
+    public void walk(ASTNode node)
+    {
+        if (node != null) node.accept(this);
+    }
+
+    private void walkAll(List<? extends ASTNode> nodes)
+    {
+        for (ASTNode node : nodes) walk(node);
+    }
+
+    @Override
+    public void visit(ProgramNode node)
+    {
+        for (ASTVisitor l : listeners) l.visit(node);
+        walkAll(node.declarations);
+    }
+
+    @Override
+    public void visit(VarDeclNode node)
+    {
+        for (ASTVisitor l : listeners) l.visit(node);
+        walk(node.initExpr);
+    }
+
+    @Override
+    public void visit(FuncDeclNode node)
+    {
+        for (ASTVisitor l : listeners) l.visit(node);
+        walkAll(node.args);
+        walk(node.body);
+    }
+
+    @Override
+    public void visit(StructDeclNode node)
+    {
+        for (ASTVisitor l : listeners) l.visit(node);
+        walkAll(node.fields);
+    }
+
+    @Override
+    public void visit(TypedefDeclNode node)
+    {
+        for (ASTVisitor l : listeners) l.visit(node);
+    }
+
+    @Override
+    public void visit(BlockNode node)
+    {
+        for (ASTVisitor l : listeners) l.visit(node);
+        walkAll(node.statements);
+    }
+
+    @Override
+    public void visit(IfStmtNode node)
+    {
+        for (ASTVisitor l : listeners) l.visit(node);
+        walk(node.condition);
+        walk(node.thenBranch);
+        walk(node.elseBranch);
+    }
+
+    @Override
+    public void visit(WhileStmtNode node)
+    {
+        for (ASTVisitor l : listeners) l.visit(node);
+        walk(node.condition);
+        walk(node.body);
+    }
+
+    @Override
+    public void visit(ReturnStmtNode node)
+    {
+        for (ASTVisitor l : listeners) l.visit(node);
+        walk(node.expr);
+    }
+
+    @Override
+    public void visit(BinaryExprNode node)
+    {
+        for (ASTVisitor l : listeners) l.visit(node);
+        walk(node.left);
+        walk(node.right);
+    }
+
+    @Override
+    public void visit(UnaryExprNode node)
+    {
+        for (ASTVisitor l : listeners) l.visit(node);
+        walk(node.expr);
+    }
+
+    @Override
+    public void visit(LiteralNode node)
+    {
+        for (ASTVisitor l : listeners) l.visit(node);
+    }
+
+    @Override
+    public void visit(IdNode node)
+    {
+        for (ASTVisitor l : listeners) l.visit(node);
+    }
+
+    @Override
+    public void visit(FuncCallNode node)
+    {
+        for (ASTVisitor l : listeners) l.visit(node);
+        walkAll(node.args);
+    }
+
+    @Override
+    public void visit(CastExprNode node)
+    {
+        for (ASTVisitor l : listeners) l.visit(node);
+        walk(node.expr);
+    }
+
+    @Override
+    public void visit(TernaryExprNode node)
+    {
+        for (ASTVisitor l : listeners) l.visit(node);
+        walk(node.condition);
+        walk(node.thenExpr);
+        walk(node.elseExpr);
+    }
+}
@@ -2,15 +2,16 @@ import java.util.*;
 
 // Control Flow Graph Node
 class CFGNode {
-    private static int nextId = 0;
-    int id;
-    String label;
+    int id = -1;              // dense per-graph id, assigned by ControlFlowGraph.addNode
+    String label;             // statement nodes: null until first requested (see getLabel)
     List<CFGNode> successors;
     List<CFGNode> predecessors;
     ASTNode astNode;
+    List<ASTNode> statements; // basic-block nodes only: the folded statements, in order
+    List<CFGNode> folded;     // basic-block nodes only: the folded nodes, in order
+    ControlFlowGraph owner;   // graph this node was added to, for O(1) membership
     
     public CFGNode(String label) {
-        this.id = nextId++;
         this.label = label;
         this.successors = new ArrayList<>();
         this.predecessors = new ArrayList<>();
@@ -20,9 +21,32 @@ class CFGNode {
         this(label);
         this.astNode = astNode;
     }
+
+    /** Statement node; its label is printed from astNode only when first needed. */
+    public CFGNode(ASTNode astNode) {
+        this(null, astNode);
+    }
+
+    public String getLabel() {
+        if (label == null) {
+            if (folded != null) {
+                StringBuilder sb = new StringBuilder();
+                for (CFGNode n : folded) {
+                    if (sb.length() > 0) sb.append("\\n");
+                    sb.append(n.getLabel());
+                }
+                label = sb.toString();
+            } else {
+                label = CFGLabels.of(astNode);
+            }
+        }
+        return label;
+    }
     
     public void addSuccessor(CFGNode node) {
-        if (!successors.contains(node)) {
+        // Duplicate edges are detected through the owning graph's edge set
+        boolean isNew = owner != null ? owner.addEdgeKey(this, node) : !successors.contains(node);
+        if (isNew) {
             successors.add(node);
             node.predecessors.add(this);
         }
@@ -30,12 +54,147 @@ class CFGNode {
     
     @Override
     public String toString() {
-        return "Node" + id + ": " + label;
+        return "Node" + id + ": " + getLabel();
     }
-    
-    public static void resetIdCounter() {
-        nextId = 0;
+}
+
+// Labels of statement nodes, printed on first use
+class CFGLabels {
+    static final int MAX_LABEL = 50;
+
+    static String of(ASTNode node) {
+        if (node instanceof IfStmtNode) {
+            return "if (" + ((IfStmtNode) node).condition.toString(0) + ")";
+        }
+        if (node instanceof WhileStmtNode) {
+            return "while (" + ((WhileStmtNode) node).condition.toString(0) + ")";
+        }
+        if (node instanceof ReturnStmtNode) {
+            ASTNode expr = ((ReturnStmtNode) node).expr;
+            return "return " + (expr != null ? expr.toString(0) : "");
+        }
+
+        // Other statements are cut to MAX_LABEL, so only print a little past it
+        LabelPrinter p = new LabelPrinter(MAX_LABEL + 16);
+        node.accept(p);
+        String label = p.text();
+        if (p.truncated && label.length() <= MAX_LABEL) {
+            label = node.toString(0).trim();   // mostly leading whitespace; print it all
+        }
+        if (label.length() > MAX_LABEL) {
+            label = label.substring(0, MAX_LABEL - 3) + "...";
+        }
+        return label;
+    }
+}
+
+/**
+ * Prints an expression or simple statement like ASTNode.toString(0), but
+ * stops descending once limit characters have been written.
+ */
+class LabelPrinter implements ASTVisitor {
+    private final StringBuilder sb = new StringBuilder();
+    private final int limit;
+    boolean truncated;
+
+    LabelPrinter(int limit) {
+        this.limit = limit;
+    }
+
+    /** The printed text with leading whitespace removed (trailing too, if complete). */
+    String text() {
+        int start = 0;
+        while (start < sb.length() && sb.charAt(start) <= ' ') start++;
+        String s = sb.substring(start);
+        return truncated ? s : s.trim();
+    }
+
+    private void print(ASTNode node) {
+        if (sb.length() >= limit) {
+            truncated = true;
+            return;
+        }
+        node.accept(this);
+    }
+
+    @Override
+    public void visit(VarDeclNode node) {
+        sb.append("VarDecl: ").append(node.type).append(' ').append(node.name);
+        if (node.initExpr != null) {
+            sb.append(" = ");
+            print(node.initExpr);
+        }
+    }
+
+    @Override
+    public void visit(BinaryExprNode node) {
+        sb.append('(');
+        print(node.left);
+        sb.append(' ').append(node.operator).append(' ');
+        print(node.right);
+        sb.append(')');
     }
+
+    @Override
+    public void visit(UnaryExprNode node) {
+        sb.append('(');
+        if (node.isPostfix) {
+            print(node.expr);
+            sb.append(node.operator);
+        } else {
+            sb.append(node.operator);
+            print(node.expr);
+        }
+        sb.append(')');
+    }
+
+    @Override
+    public void visit(LiteralNode node) {
+        sb.append(node.value);
+    }
+
+    @Override
+    public void visit(IdNode node) {
+        sb.append(node.name);
+    }
+
+    @Override
+    public void visit(FuncCallNode node) {
+        sb.append(node.name).append('(');
+        for (int i = 0; i < node.args.size(); i++) {
+            if (i > 0) sb.append(", ");
+            print(node.args.get(i));
+        }
+        sb.append(')');
+    }
+
+    @Override
+    public void visit(CastExprNode node) {
+        sb.append("((").append(node.castType).append(')');
+        print(node.expr);
+        sb.append(')');
+    }
+
+    @Override
+    public void visit(TernaryExprNode node) {
+        sb.append('(');
+        print(node.condition);
+        sb.append(" ? ");
+        print(node.thenExpr);
+        sb.append(" : ");
+        print(node.elseExpr);
+        sb.append(')');
+    }
+
+    // Declarations and compound statements never label a single CFG node
+    @Override public void visit(ProgramNode node)     { sb.append(node.toString(0)); }
+    @Override public void visit(FuncDeclNode node)    { sb.append(node.toString(0)); }
+    @Override public void visit(StructDeclNode node)  { sb.append(node.toString(0)); }
+    @Override public void visit(TypedefDeclNode node) { sb.append(node.toString(0)); }
+    @Override public void visit(BlockNode node)       { sb.append(node.toString(0)); }
+    @Override public void visit(IfStmtNode node)      { sb.append(node.toString(0)); }
+    @Override public void visit(WhileStmtNode node)   { sb.append(node.toString(0)); }
+    @Override public void visit(ReturnStmtNode node)  { sb.append(node.toString(0)); }
 }
 
 // Control Flow Graph for a function
@@ -44,32 +203,39 @@ class ControlFlowGraph {
     CFGNode entry;
     CFGNode exit;
     List<CFGNode> allNodes;
+    private final Set<Long> edgeKeys = new HashSet<>();   // (from id, to id) of every edge
     
     public ControlFlowGraph(String functionName) {
         this.functionName = functionName;
         this.allNodes = new ArrayList<>();
         this.entry = new CFGNode("ENTRY\\n" + functionName);
         this.exit = new CFGNode("EXIT");
-        allNodes.add(entry);
-        allNodes.add(exit);
+        addNode(entry);
+        addNode(exit);
     }
     
+    // Ids are allocated per graph (0 = ENTRY, 1 = EXIT, then in insertion order),
+    // so graphs can be built concurrently and their output does not depend on
+    // what was built before
     public void addNode(CFGNode node) {
-        if (!allNodes.contains(node)) {
+        if (node.owner != this) {
+            node.owner = this;
+            node.id = allNodes.size();
             allNodes.add(node);
         }
     }
+
+    /** Records the edge from -> to; false if it already exists. */
+    boolean addEdgeKey(CFGNode from, CFGNode to) {
+        return edgeKeys.add(((long) from.id << 32) | (to.id & 0xFFFFFFFFL));
+    }
     
     public int calculateCyclomaticComplexity() {
         // M = E - N + 2 (for strongly connected graph)
         // Or M = number of decision points + 1
-        int edges = 0;
+        int edges = getEdgeCount();
         int nodes = allNodes.size();
         
-        for (CFGNode node : allNodes) {
-            edges += node.successors.size();
-        }
-        
         // For a single connected component
         int complexity = edges - nodes + 2;
         return complexity;
@@ -87,33 +253,141 @@ class ControlFlowGraph {
     }
     
     public void printCFG() {
-        System.out.println("\n=== Control Flow Graph for: " + functionName + " ===");
-        System.out.println("Nodes: " + allNodes.size() + ", Entry: Node" + entry.id + ", Exit: Node" + exit.id);
+        System.out.print(formatCFG());
+    }
+
+    /** The text printed by printCFG(). */
+    public String formatCFG() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\n=== Control Flow Graph for: ").append(functionName).append(" ===\n");
+        sb.append("Nodes: ").append(allNodes.size()).append(", Entry: Node").append(entry.id)
+          .append(", Exit: Node").append(exit.id).append('\n');
         
         for (CFGNode node : allNodes) {
-            System.out.print("  " + node);
+            sb.append("  ").append(node);
             if (!node.successors.isEmpty()) {
-                System.out.print(" -> [");
+                sb.append(" -> [");
                 for (int i = 0; i < node.successors.size(); i++) {
-                    System.out.print("Node" + node.successors.get(i).id);
-                    if (i < node.successors.size() - 1) System.out.print(", ");
+                    sb.append("Node").append(node.successors.get(i).id);
+                    if (i < node.successors.size() - 1) sb.append(", ");
                 }
-                System.out.print("]");
+                sb.append("]");
             }
-            System.out.println();
+            sb.append('\n');
         }
         
         int complexity = calculateCyclomaticComplexity();
         int decisions = calculateDecisionPoints();
-        System.out.println("Cyclomatic Complexity: " + complexity + " (via edges-nodes+2)");
-        System.out.println("Cyclomatic Complexity: " + decisions + " (via decision points)");
+        sb.append("Cyclomatic Complexity: ").append(complexity).append(" (via edges-nodes+2)\n");
+        sb.append("Cyclomatic Complexity: ").append(decisions).append(" (via decision points)\n");
+        return sb.toString();
+    }
+
+    /**
+     * Basic-block form of this graph: every maximal straight-line chain
+     * (each link the only successor of its predecessor and the only
+     * predecessor of its successor) becomes one node whose label lists the
+     * statements. Each fold removes one node and one edge, so cyclomatic
+     * complexity and decision points are unchanged. ENTRY and EXIT stay
+     * separate nodes. This graph is not modified.
+     */
+    public ControlFlowGraph coalesceBlocks() {
+        ControlFlowGraph g = new ControlFlowGraph(functionName);
+        CFGNode[] block = new CFGNode[allNodes.size()];
+        block[entry.id] = g.entry;
+        block[exit.id] = g.exit;
+
+        for (CFGNode node : allNodes) {
+            if (block[node.id] != null || foldsIntoPredecessor(node)) continue;
+            startBlock(g, node, block);
+        }
+        // Cycles of foldable nodes with no way in (not produced by CFGBuilder)
+        for (CFGNode node : allNodes) {
+            if (block[node.id] == null) startBlock(g, node, block);
+        }
+
+        // Edges leaving each block, in the original successor order
+        for (CFGNode node : allNodes) {
+            for (CFGNode succ : node.successors) {
+                if (block[succ.id] != block[node.id] || !foldsIntoPredecessor(succ)) {
+                    block[node.id].addSuccessor(block[succ.id]);
+                }
+            }
+        }
+        return g;
+    }
+
+    private boolean foldsIntoPredecessor(CFGNode node) {
+        if (node == entry || node == exit || node.predecessors.size() != 1) return false;
+        CFGNode pred = node.predecessors.get(0);
+        return pred != entry && pred != node && pred.successors.size() == 1;
+    }
+
+    // Creates the block starting at head and extends it down the chain
+    private void startBlock(ControlFlowGraph g, CFGNode head, CFGNode[] block) {
+        List<CFGNode> chain = new ArrayList<>();
+        chain.add(head);
+        CFGNode cur = head;
+        while (cur.successors.size() == 1) {
+            CFGNode next = cur.successors.get(0);
+            if (block[next.id] != null || next == head || !foldsIntoPredecessor(next)) break;
+            chain.add(next);
+            cur = next;
+        }
+
+        CFGNode b;
+        if (chain.size() == 1) {
+            b = new CFGNode(head.label, head.astNode);
+        } else {
+            List<ASTNode> stmts = new ArrayList<>(chain.size());
+            for (CFGNode n : chain) {
+                if (n.statements != null) stmts.addAll(n.statements);
+                else if (n.astNode != null) stmts.add(n.astNode);
+            }
+            b = new CFGNode(null, null);   // label joined from the folded nodes on demand
+            b.statements = stmts;
+            b.folded = chain;
+        }
+        g.addNode(b);
+        for (CFGNode n : chain) block[n.id] = b;
+    }
+
+    /** Dominator tree rooted at ENTRY (see DominatorTree). */
+    public DominatorTree dominatorTree() {
+        return DominatorTree.dominators(this);
+    }
+
+    /** Post-dominator tree rooted at EXIT. */
+    public DominatorTree postDominatorTree() {
+        return DominatorTree.postDominators(this);
+    }
+
+    /** Number of edges (sum of successor counts). */
+    public int getEdgeCount() {
+        int edges = 0;
+        for (CFGNode node : allNodes) {
+            edges += node.successors.size();
+        }
+        return edges;
     }
     
     public String toDot() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("digraph CFG_").append(functionName.replace(" ", "_")).append(" {\n");
-        sb.append("  rankdir=TB;\n");
-        sb.append("  node [shape=box];\n");
+        java.io.StringWriter sw = new java.io.StringWriter();
+        try {
+            writeDot(sw);
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e); // not thrown by StringWriter
+        }
+        return sw.toString();
+    }
+
+    /** Streams the DOT document to out (callers should pass a buffered Writer). */
+    public void writeDot(java.io.Writer out) throws java.io.IOException {
+        out.write("digraph CFG_");
+        out.write(functionName.replace(" ", "_"));
+        out.write(" {\n");
+        out.write("  rankdir=TB;\n");
+        out.write("  node [shape=box];\n");
         
         for (CFGNode node : allNodes) {
             String shape = "box";
@@ -121,32 +395,100 @@ class ControlFlowGraph {
             else if (node == exit) shape = "ellipse";
             else if (node.successors.size() > 1) shape = "diamond";
             
-            sb.append("  Node").append(node.id).append(" [label=\"").append(node.label.replace("\"", "\\\"")).append("\", shape=").append(shape).append("];\n");
+            out.write("  Node");
+            out.write(Integer.toString(node.id));
+            out.write(" [label=\"");
+            DotWriter.writeEscaped(out, node.getLabel());
+            out.write("\", shape=");
+            out.write(shape);
+            out.write("];\n");
         }
         
         for (CFGNode node : allNodes) {
             for (int i = 0; i < node.successors.size(); i++) {
                 CFGNode succ = node.successors.get(i);
-                sb.append("  Node").append(node.id).append(" -> Node").append(succ.id);
+                out.write("  Node");
+                out.write(Integer.toString(node.id));
+                out.write(" -> Node");
+                out.write(Integer.toString(succ.id));
                 if (node.successors.size() > 1) {
-                    String edgeLabel = (i == 0) ? "true" : "false";
-                    sb.append(" [label=\"").append(edgeLabel).append("\"]");
+                    out.write(i == 0 ? " [label=\"true\"]" : " [label=\"false\"]");
                 }
-                sb.append(";\n");
+                out.write(";\n");
             }
         }
         
-        sb.append("}\n");
-        return sb.toString();
+        out.write("}\n");
+    }
+}
+
+// One function's CFG together with its metrics and printCFG text, all
+// computed on the worker thread that built it (DOT is streamed by the caller)
+class CFGResult {
+    final ControlFlowGraph cfg;
+    final int complexity;       // edges - nodes + 2
+    final int decisionPoints;   // branching nodes + 1
+    final int nodeCount;
+    final int edgeCount;
+    final int loopCount;        // natural loops (see LoopNest)
+    final int maxLoopDepth;
+    final int allocatingLoops;  // loops calling an allocation function
+    final int essentialComplexity;  // see ComplexityMetrics
+    final long npath;
+    final int maxNesting;
+    final String text;          // printCFG() output, or null if not rendered
+
+    CFGResult(ControlFlowGraph cfg, ComplexityMetrics metrics, boolean renderText) {
+        this.cfg = cfg;
+        this.complexity = cfg.calculateCyclomaticComplexity();
+        this.essentialComplexity = metrics.essentialComplexity;
+        this.npath = metrics.npath;
+        this.maxNesting = metrics.maxNesting;
+        this.decisionPoints = cfg.calculateDecisionPoints();
+        this.nodeCount = cfg.allNodes.size();
+        this.edgeCount = cfg.getEdgeCount();
+        LoopNest loops = LoopNest.analyze(cfg);
+        this.loopCount = loops.getLoopCount();
+        this.maxLoopDepth = loops.getMaxDepth();
+        this.allocatingLoops = loops.getAllocatingLoopCount();
+        this.text = renderText ? cfg.formatCFG() : null;
     }
 }
 
 // CFG Builder - constructs CFG from AST
 class CFGBuilder {
+
+    /**
+     * Builds and measures the CFG of every function in parallel on the common
+     * ForkJoinPool. Graphs share no state (ids are per graph), and the results
+     * come back in source order. No node label is printed unless asked for.
+     */
+    public static List<CFGResult> buildAndMeasure(ProgramNode program) {
+        return buildAndMeasure(program, false, false);
+    }
+
+    /**
+     * As above; with basicBlocks, each graph is reduced by coalesceBlocks()
+     * first, and with renderText each result also carries its printCFG() text.
+     */
+    public static List<CFGResult> buildAndMeasure(ProgramNode program, boolean basicBlocks, boolean renderText) {
+        List<FuncDeclNode> funcs = new ArrayList<>();
+        for (ASTNode node : program.declarations) {
+            if (node instanceof FuncDeclNode) {
+                funcs.add((FuncDeclNode) node);
+            }
+        }
+        return funcs.parallelStream()
+                    .map(func -> {
+                        ControlFlowGraph cfg = buildCFG(func);
+                        return new CFGResult(basicBlocks ? cfg.coalesceBlocks() : cfg,
+                                             ComplexityMetrics.of(func), renderText);
+                    })
+                    .collect(java.util.stream.Collectors.toList());
+    }
     
     public static List<ControlFlowGraph> buildCFGsFromProgram(ProgramNode program) {
         List<ControlFlowGraph> cfgs = new ArrayList<>();
-        CFGNode.resetIdCounter();
         
         for (ASTNode node : program.declarations) {
             if (node instanceof FuncDeclNode) {
@@ -194,7 +536,7 @@ class CFGBuilder {
             IfStmtNode ifStmt = (IfStmtNode) node;
             
             // Create condition node
-            CFGNode condNode = new CFGNode("if (" + ifStmt.condition.toString(0) + ")", ifStmt);
+            CFGNode condNode = new CFGNode(ifStmt);
             cfg.addNode(condNode);
             previous.addSuccessor(condNode);
             
@@ -225,7 +567,7 @@ class CFGBuilder {
             WhileStmtNode whileStmt = (WhileStmtNode) node;
             
             // Create condition node
-            CFGNode condNode = new CFGNode("while (" + whileStmt.condition.toString(0) + ")", whileStmt);
+            CFGNode condNode = new CFGNode(whileStmt);
             cfg.addNode(condNode);
             previous.addSuccessor(condNode);
             
@@ -246,7 +588,7 @@ class CFGBuilder {
         }
         else if (node instanceof ReturnStmtNode) {
             ReturnStmtNode retStmt = (ReturnStmtNode) node;
-            CFGNode retNode = new CFGNode("return " + (retStmt.expr != null ? retStmt.expr.toString(0) : ""), retStmt);
+            CFGNode retNode = new CFGNode(retStmt);
             cfg.addNode(retNode);
             previous.addSuccessor(retNode);
             retNode.addSuccessor(cfg.exit);
@@ -254,11 +596,7 @@ class CFGBuilder {
         }
         else {
             // Regular statement (assignment, expression, etc.)
-            String label = node.toString(0).trim();
-            if (label.length() > 50) {
-                label = label.substring(0, 47) + "...";
-            }
-            CFGNode stmtNode = new CFGNode(label, node);
+            CFGNode stmtNode = new CFGNode(node);
             cfg.addNode(stmtNode);
             previous.addSuccessor(stmtNode);
             return stmtNode;
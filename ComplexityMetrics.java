@@ -0,0 +1,126 @@
+import java.util.*;
+
+/**
+ * ComplexityMetrics - structural metrics of one function, reported next to
+ * the cyclomatic complexity measured on its CFG.
+ *
+ *   essential  cyclomatic complexity left once every structured if/while is
+ *              reduced to a single node. A construct is unstructured when it
+ *              contains a return that leaves the function early (one that is
+ *              not the function's last statement on its path); it cannot be
+ *              reduced and keeps its decision: 1 + unstructured constructs.
+ *   NPath      acyclic execution paths (Nejmeh): statement sequences multiply,
+ *              if = then + else (or 1), while = body + 1, and each && / || in a
+ *              condition or return value adds one path. Saturates at
+ *              Long.MAX_VALUE instead of overflowing.
+ *   nesting    deepest if/while nesting; an else-if chain is one level.
+ *
+ * All three come from a single walk of the function body, covering the same
+ * statements CFGBuilder turns into nodes (code after a return is skipped).
+ */
+public class ComplexityMetrics {
+    final int essentialComplexity;
+    final long npath;
+    final int maxNesting;
+
+    // walk state
+    private int unstructured;      // constructs containing an early return
+    private int deepest;
+    private boolean earlyReturn;   // seen in the construct being walked
+    private int logicalOps;
+    private final CompositeASTVisitor opCounter = new CompositeASTVisitor(new ASTVisitor() {
+        @Override
+        public void visit(BinaryExprNode node) {
+            if (node.operator.equals("&&") || node.operator.equals("||")) logicalOps++;
+        }
+    });
+
+    private ComplexityMetrics(FuncDeclNode func) {
+        this.npath = walk(func.body, 0, true);
+        this.essentialComplexity = 1 + unstructured;
+        this.maxNesting = deepest;
+    }
+
+    public static ComplexityMetrics of(FuncDeclNode func) {
+        return new ComplexityMetrics(func);
+    }
+
+    // NPath of node; tail = nothing in the function runs after it
+    private long walk(ASTNode node, int depth, boolean tail) {
+        if (node == null) return 1;
+
+        if (node instanceof BlockNode) {
+            List<ASTNode> statements = ((BlockNode) node).statements;
+            long paths = 1;
+            for (int i = 0; i < statements.size(); i++) {
+                ASTNode stmt = statements.get(i);
+                boolean last = i == statements.size() - 1 || stmt instanceof ReturnStmtNode;
+                paths = multiply(paths, walk(stmt, depth, tail && last));
+                if (stmt instanceof ReturnStmtNode) break;   // the rest is unreachable
+            }
+            return paths;
+        }
+        else if (node instanceof IfStmtNode) {
+            IfStmtNode ifStmt = (IfStmtNode) node;
+            boolean outer = enterConstruct(depth);
+            long paths = add(walk(ifStmt.thenBranch, depth + 1, tail), logicalOps(ifStmt.condition));
+            if (ifStmt.elseBranch != null) {
+                // else-if continues the chain at this level
+                int elseDepth = ifStmt.elseBranch instanceof IfStmtNode ? depth : depth + 1;
+                paths = add(paths, walk(ifStmt.elseBranch, elseDepth, tail));
+            } else {
+                paths = add(paths, 1);
+            }
+            leaveConstruct(outer);
+            return paths;
+        }
+        else if (node instanceof WhileStmtNode) {
+            WhileStmtNode whileStmt = (WhileStmtNode) node;
+            boolean outer = enterConstruct(depth);
+            long paths = add(walk(whileStmt.body, depth + 1, false), logicalOps(whileStmt.condition));
+            paths = add(paths, 1);
+            leaveConstruct(outer);
+            return paths;
+        }
+        else if (node instanceof ReturnStmtNode) {
+            if (!tail) earlyReturn = true;
+            return Math.max(1, logicalOps(((ReturnStmtNode) node).expr));
+        }
+        return 1;
+    }
+
+    private boolean enterConstruct(int depth) {
+        deepest = Math.max(deepest, depth + 1);
+        boolean outer = earlyReturn;
+        earlyReturn = false;
+        return outer;
+    }
+
+    private void leaveConstruct(boolean outer) {
+        if (earlyReturn) unstructured++;
+        earlyReturn |= outer;
+    }
+
+    private int logicalOps(ASTNode expr) {
+        logicalOps = 0;
+        opCounter.walk(expr);
+        return logicalOps;
+    }
+
+    // Saturating arithmetic: path counts grow exponentially with sequential branches
+    private static long add(long a, long b) {
+        try {
+            return Math.addExact(a, b);
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static long multiply(long a, long b) {
+        try {
+            return Math.multiplyExact(a, b);
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -125,22 +125,17 @@ public class DependencyGraph {
      * Try to locate a header file by searching:
      *   1. The directory of the file that issued the #include (localBase)
      *   2. Each registered search directory (and their include/ / src/ subdirs)
+     * Lookups go through the shared HeaderIndex (cached directory listings).
      */
     private String findFile(String headerName, String localBase) {
+        HeaderIndex index = HeaderIndex.shared();
         // 1. Relative to the including file
         if (localBase != null) {
-            File candidate = new File(localBase, headerName);
-            if (candidate.exists()) return candidate.getAbsolutePath();
+            String found = index.findIn(localBase, headerName);
+            if (found != null) return found;
         }
         // 2. Registered search directories
-        for (String dir : searchDirs) {
-            for (String sub : new String[]{".", "include", "src"}) {
-                File base      = sub.equals(".") ? new File(dir) : new File(dir, sub);
-                File candidate = new File(base, headerName);
-                if (candidate.exists()) return candidate.getAbsolutePath();
-            }
-        }
-        return null;
+        return index.find(headerName, searchDirs);
     }
 
     // --------------------------------------------------------- DOT generation
@@ -149,87 +144,103 @@ public class DependencyGraph {
      * Build and return a Graphviz DOT string for the collected dependency graph.
      */
     public String toDot() {
+        StringWriter sw = new StringWriter();
+        try {
+            writeDot(sw);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // not thrown by StringWriter
+        }
+        return sw.toString();
+    }
+
+    /**
+     * Stream the DOT document for the collected dependency graph to out
+     * (callers should pass a buffered Writer).
+     */
+    public void writeDot(Writer out) throws IOException {
         boolean multiRoot = rootFiles.size() > 1;
-        String graphId = multiRoot
-            ? "DependencyGraph"
-            : sanitizeId(rootFiles.get(0));
 
-        StringBuilder sb = new StringBuilder();
-        sb.append("digraph dep_").append(graphId).append(" {\n");
-        sb.append("  rankdir=LR;\n");
-        sb.append("  splines=ortho;\n");
-        sb.append("  node [fontname=\"Helvetica\", fontsize=11, margin=\"0.2,0.1\"];\n");
-        sb.append("  edge [color=\"#666666\"];\n\n");
+        out.write("digraph dep_");
+        if (multiRoot) out.write("DependencyGraph");
+        else DotWriter.writeId(out, "n_", rootFiles.get(0));
+        out.write(" {\n");
+        out.write("  rankdir=LR;\n");
+        out.write("  splines=ortho;\n");
+        out.write("  node [fontname=\"Helvetica\", fontsize=11, margin=\"0.2,0.1\"];\n");
+        out.write("  edge [color=\"#666666\"];\n\n");
 
         // ---- legend cluster ----
-        sb.append("  subgraph cluster_legend {\n");
-        sb.append("    label=\"Legend\"; style=dashed; fontsize=10;\n");
-        sb.append("    L1 [label=\"Source File\",   style=filled, fillcolor=\"#4A90D9\", fontcolor=white,   shape=box];\n");
-        sb.append("    L2 [label=\"Local Header\",  style=filled, fillcolor=\"#7EC8A4\", fontcolor=black,   shape=box];\n");
-        sb.append("    L3 [label=\"Not Found\",     style=filled, fillcolor=\"#F0A070\", fontcolor=black,   shape=box];\n");
-        sb.append("    L4 [label=\"System Header\", style=filled, fillcolor=\"#DDDDDD\", fontcolor=\"#444444\", shape=box];\n");
-        sb.append("    L1 -> L2 -> L3 -> L4 [style=invis];\n");
-        sb.append("  }\n\n");
+        out.write("  subgraph cluster_legend {\n");
+        out.write("    label=\"Legend\"; style=dashed; fontsize=10;\n");
+        out.write("    L1 [label=\"Source File\",   style=filled, fillcolor=\"#4A90D9\", fontcolor=white,   shape=box];\n");
+        out.write("    L2 [label=\"Local Header\",  style=filled, fillcolor=\"#7EC8A4\", fontcolor=black,   shape=box];\n");
+        out.write("    L3 [label=\"Not Found\",     style=filled, fillcolor=\"#F0A070\", fontcolor=black,   shape=box];\n");
+        out.write("    L4 [label=\"System Header\", style=filled, fillcolor=\"#DDDDDD\", fontcolor=\"#444444\", shape=box];\n");
+        out.write("    L1 -> L2 -> L3 -> L4 [style=invis];\n");
+        out.write("  }\n\n");
 
         // ---- system headers cluster (right side) ----
         boolean hasSystem = nodes.values().stream().anyMatch(n -> n.type == NodeType.SYSTEM_HEADER);
         if (hasSystem) {
-            sb.append("  subgraph cluster_system {\n");
-            sb.append("    label=\"System / Standard Library\"; style=filled; fillcolor=\"#F5F5F5\"; fontsize=10;\n");
+            out.write("  subgraph cluster_system {\n");
+            out.write("    label=\"System / Standard Library\"; style=filled; fillcolor=\"#F5F5F5\"; fontsize=10;\n");
             for (DepNode node : nodes.values()) {
                 if (node.type != NodeType.SYSTEM_HEADER) continue;
-                String id = sanitizeId(node.name);
-                sb.append("    ").append(id)
-                  .append(" [label=\"<").append(escape(node.name)).append(">\"")
-                  .append(", style=filled, fillcolor=\"#DDDDDD\"")
-                  .append(", fontcolor=\"#444444\", shape=box];\n");
+                out.write("    ");
+                DotWriter.writeId(out, "n_", node.name);
+                out.write(" [label=\"<");
+                DotWriter.writeEscaped(out, node.name);
+                out.write(">\", style=filled, fillcolor=\"#DDDDDD\", fontcolor=\"#444444\", shape=box];\n");
             }
-            sb.append("  }\n\n");
+            out.write("  }\n\n");
         }
 
         // ---- source + local header nodes ----
         for (DepNode node : nodes.values()) {
             if (node.type == NodeType.SYSTEM_HEADER) continue;
-            String id = sanitizeId(node.name);
-            String label, fillColor, fontColor;
+            String fillColor, fontColor;
+            boolean notFound = false;
             switch (node.type) {
                 case SOURCE:
-                    label     = escape(node.name);
                     fillColor = "#4A90D9";
                     fontColor = "white";
                     break;
                 case LOCAL_HEADER:
                 default:
-                    label     = escape(node.name) + (node.fullPath == null ? "\\n(not found)" : "");
+                    notFound  = node.fullPath == null;
                     fillColor = node.fullPath != null ? "#7EC8A4" : "#F0A070";
                     fontColor = "black";
                     break;
             }
-            sb.append("  ").append(id)
-              .append(" [label=\"").append(label).append("\"")
-              .append(", style=filled")
-              .append(", fillcolor=\"").append(fillColor).append("\"")
-              .append(", fontcolor=\"").append(fontColor).append("\"")
-              .append(", shape=box];\n");
+            out.write("  ");
+            DotWriter.writeId(out, "n_", node.name);
+            out.write(" [label=\"");
+            DotWriter.writeEscaped(out, node.name);
+            if (notFound) out.write("\\n(not found)");
+            out.write("\", style=filled, fillcolor=\"");
+            out.write(fillColor);
+            out.write("\", fontcolor=\"");
+            out.write(fontColor);
+            out.write("\", shape=box];\n");
         }
 
-        sb.append("\n");
+        out.write("\n");
 
         // ---- edges ----
         for (DepNode node : nodes.values()) {
             for (String dep : node.includes) {
                 if (!nodes.containsKey(dep)) continue;
                 NodeType depType = nodes.get(dep).type;
-                String edgeAttrs = depType == NodeType.SYSTEM_HEADER
-                    ? " [style=dashed, color=\"#AAAAAA\"]" : "";
-                sb.append("  ").append(sanitizeId(node.name))
-                  .append(" -> ").append(sanitizeId(dep))
-                  .append(edgeAttrs).append(";\n");
+                out.write("  ");
+                DotWriter.writeId(out, "n_", node.name);
+                out.write(" -> ");
+                DotWriter.writeId(out, "n_", dep);
+                if (depType == NodeType.SYSTEM_HEADER) out.write(" [style=dashed, color=\"#AAAAAA\"]");
+                out.write(";\n");
             }
         }
 
-        sb.append("}\n");
-        return sb.toString();
+        out.write("}\n");
     }
 
     // --------------------------------------------------------- text summary
@@ -270,8 +281,8 @@ public class DependencyGraph {
         String dotFile = baseName + ".dot";
         String pngFile = baseName + ".png";
 
-        try (PrintWriter writer = new PrintWriter(dotFile)) {
-            writer.print(dg.toDot());
+        try (Writer writer = Files.newBufferedWriter(Paths.get(dotFile))) {
+            dg.writeDot(writer);
             System.out.println("  Generated: " + dotFile);
         } catch (IOException e) {
             System.err.println("  Error writing " + dotFile + ": " + e.getMessage());
@@ -295,14 +306,4 @@ public class DependencyGraph {
 
         return dotFile;
     }
-
-    // --------------------------------------------------------- utilities
-
-    private static String sanitizeId(String name) {
-        return "n_" + name.replaceAll("[^a-zA-Z0-9_]", "_");
-    }
-
-    private static String escape(String s) {
-        return s.replace("\"", "\\\"");
-    }
 }
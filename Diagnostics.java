@@ -0,0 +1,275 @@
+import java.util.*;
+
+// Every diagnostic the semantic analyzer can emit. The message text is a
+// format template filled in only when the diagnostic is printed.
+enum DiagnosticKind {
+    STRUCT_REDECLARED        ("error",   "declarations", "Struct '%s' already declared"),
+    PARAM_REDECLARED         ("error",   "declarations", "Parameter '%s' already declared"),
+    VAR_REDECLARED           ("error",   "declarations", "Variable '%s' already declared in this scope"),
+    INIT_TYPE_MISMATCH       ("error",   "types",        "Type mismatch in initialization of '%s': expected %s but got %s"),
+    RETURN_TYPE_MISMATCH     ("error",   "types",        "Return type mismatch in function '%s': expected %s but got %s"),
+    MISSING_RETURN_VALUE     ("error",   "types",        "Function '%s' should return %s"),
+    ASSIGN_TYPE_MISMATCH     ("warning", "types",        "Type mismatch in assignment: %s = %s"),
+    EXPR_TYPE_MISMATCH       ("warning", "types",        "Type mismatch in expression: %s %s %s"),
+    INVALID_POINTER_ARITH    ("error",   "types",        "Invalid pointer arithmetic with operator: %s"),
+    DEREF_NON_POINTER        ("error",   "types",        "Cannot dereference non-pointer type: %s"),
+    ADDRESS_OF_NON_LVALUE    ("error",   "types",        "Cannot take address of non-lvalue"),
+    CONDITION_TYPE           ("warning", "conditions",   "Condition should be boolean or integer type, got: %s"),
+    LOOP_CONDITION_TYPE      ("warning", "conditions",   "Loop condition should be boolean or integer type, got: %s"),
+    UNDECLARED_VARIABLE      ("warning", "undeclared",   "Variable '%s' not declared (may be external/macro)"),
+    UNDECLARED_FUNCTION      ("warning", "undeclared",   "Function '%s' not declared (may be external)"),
+    NOT_A_FUNCTION           ("error",   "types",        "'%s' is not a function"),
+    ARG_COUNT                ("error",   "types",        "Function '%s' expects %s arguments but got %s"),
+    ARG_COUNT_VARIADIC       ("error",   "types",        "Function '%s' expects at least %s arguments but got %s"),
+    ARG_TYPE_MISMATCH        ("error",   "types",        "Argument %s of function '%s': expected %s but got %s"),
+    ARROW_RHS_NOT_MEMBER     ("error",   "types",        "Right side of -> must be a member name"),
+    ARROW_LHS_NOT_POINTER    ("error",   "types",        "Left side of -> must be a pointer"),
+    DOT_RHS_NOT_MEMBER       ("error",   "types",        "Right side of . must be a member name"),
+    NO_SUCH_MEMBER           ("error",   "types",        "Struct '%s' has no member named '%s'"),
+    MEMORY_LEAK              ("warning", "memory",       "Memory leak: '%s' allocated but never freed in '%s'"),
+    USE_AFTER_FREE           ("error",   "memory",       "Use after free: pointer '%s' was freed"),
+    DOUBLE_FREE              ("error",   "memory",       "Double free of pointer '%s'");
+
+    final String severity; // "error", "warning"
+    final String rule;     // owning rule, see SemanticRules
+    final String template;
+
+    DiagnosticKind(String severity, String rule, String template) {
+        this.severity = severity;
+        this.rule = rule;
+        this.template = template;
+    }
+
+    boolean isError() {
+        return severity.equals("error");
+    }
+}
+
+// One aggregated diagnostic: a (kind, symbol) pair with its occurrence count
+// and the first few locations it was reported at.
+class Diagnostic {
+    final DiagnosticKind kind;
+    final Object[] args;
+    int count;
+    final List<String> locations; // first N distinct locations only
+    boolean moreLocations;        // a further distinct location was not recorded
+
+    Diagnostic(DiagnosticKind kind, Object[] args) {
+        this.kind = kind;
+        this.args = args;
+        this.count = 0;
+        this.locations = new ArrayList<>(2);
+    }
+
+    /** Builds the message text; only called when the diagnostic is printed. */
+    String message() {
+        return args.length == 0 ? kind.template : String.format(kind.template, args);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append('[').append(kind.severity.toUpperCase()).append("] ").append(message());
+        if (count > 1 || !locations.isEmpty()) {
+            sb.append("  (");
+            if (count > 1) sb.append('x').append(count);
+            if (!locations.isEmpty()) {
+                if (count > 1) sb.append("; ");
+                sb.append("in ").append(String.join(", ", locations));
+                if (moreLocations) sb.append(", ...");
+            }
+            sb.append(')');
+        }
+        return sb.toString();
+    }
+}
+
+/**
+ * Receives each diagnostic as soon as the analyzer produces it, so output can
+ * be streamed instead of buffered until printResults().
+ */
+interface DiagnosticListener {
+    /**
+     * One occurrence of a diagnostic.
+     * @param location  where it occurred (e.g. enclosing function), may be null
+     */
+    void report(DiagnosticKind kind, String location, Object... args);
+
+    /** Called once when the analysis is complete. */
+    default void finish() {}
+}
+
+/**
+ * Counting diagnostic sink — the bounded in-memory collector.
+ *
+ * Diagnostics are keyed on (kind, symbol) — the symbol being the message
+ * arguments — so the same undeclared identifier reported thousands of times
+ * costs one entry, a counter and at most maxLocations location strings.
+ * At most maxDistinct entries are retained; occurrences of further distinct
+ * diagnostics are only counted. No message text is built until printed.
+ */
+class DiagnosticSink implements DiagnosticListener {
+    public static final int DEFAULT_MAX_LOCATIONS = 3;
+    public static final int DEFAULT_MAX_DISTINCT = 10000;
+
+    private final EnumMap<DiagnosticKind, Map<String, Diagnostic>> entries;
+    private final int maxLocations;
+    private final int maxDistinct;
+    private int distinctCount;
+    private int droppedCount;
+    private int errorCount;
+    private int warningCount;
+
+    public DiagnosticSink() {
+        this(DEFAULT_MAX_LOCATIONS, DEFAULT_MAX_DISTINCT);
+    }
+
+    public DiagnosticSink(int maxLocations, int maxDistinct) {
+        this.entries = new EnumMap<>(DiagnosticKind.class);
+        this.maxLocations = maxLocations;
+        this.maxDistinct = maxDistinct;
+    }
+
+    @Override
+    public void report(DiagnosticKind kind, String location, Object... args) {
+        if (kind.isError()) errorCount++;
+        else warningCount++;
+
+        Map<String, Diagnostic> byKind = entries.computeIfAbsent(kind, k -> new LinkedHashMap<>());
+        String key = symbolKey(args);
+        Diagnostic d = byKind.get(key);
+        if (d == null) {
+            if (distinctCount >= maxDistinct) {
+                droppedCount++;
+                return;
+            }
+            d = new Diagnostic(kind, args);
+            byKind.put(key, d);
+            distinctCount++;
+        }
+        d.count++;
+        if (location != null && !d.locations.contains(location)) {
+            if (d.locations.size() < maxLocations) d.locations.add(location);
+            else d.moreLocations = true;
+        }
+    }
+
+    private static String symbolKey(Object[] args) {
+        if (args.length == 0) return "";
+        if (args.length == 1) return String.valueOf(args[0]);
+        StringBuilder sb = new StringBuilder();
+        for (Object arg : args) sb.append(arg).append('\0');
+        return sb.toString();
+    }
+
+    /** Total occurrences reported with error severity. */
+    public int getErrorCount()   { return errorCount; }
+    /** Total occurrences reported with warning severity. */
+    public int getWarningCount() { return warningCount; }
+
+    /** Aggregated diagnostics of the given severity, grouped by kind. */
+    public List<Diagnostic> getDiagnostics(String severity) {
+        List<Diagnostic> result = new ArrayList<>();
+        for (Map<String, Diagnostic> byKind : entries.values()) {
+            for (Diagnostic d : byKind.values()) {
+                if (d.kind.severity.equals(severity)) result.add(d);
+            }
+        }
+        return result;
+    }
+
+    /** Distinct diagnostics retained. */
+    public int getDistinctCount() { return distinctCount; }
+
+    /** Occurrences not retained because maxDistinct was reached (still counted above). */
+    public int getDroppedCount() { return droppedCount; }
+}
+
+// Prints every diagnostic the moment it is reported.
+class ConsoleDiagnosticListener implements DiagnosticListener {
+    private final java.io.PrintStream out;
+
+    ConsoleDiagnosticListener(java.io.PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void report(DiagnosticKind kind, String location, Object... args) {
+        String message = args.length == 0 ? kind.template : String.format(kind.template, args);
+        out.println("  [" + kind.severity.toUpperCase() + "] " + message
+                + (location != null ? "  (in " + location + ")" : ""));
+    }
+}
+
+/**
+ * Writes one JSON object per diagnostic, flushed per line so a consumer
+ * (e.g. the Python UI) can render results while the analysis runs:
+ * {"severity":"warning","kind":"MEMORY_LEAK","rule":"memory","message":"...","location":"main","file":"x.c"}
+ *
+ * Main's --diagnostics-jsonl=- writes these lines to stdout interleaved with
+ * the human-readable report; a consumer of that stream keeps only the lines
+ * starting with {"severity". Use a file for a pure JSON-lines stream.
+ */
+class JsonLinesDiagnosticListener implements DiagnosticListener {
+    private final java.io.Writer out;
+    private final String file;
+    private final boolean closeOnFinish;
+
+    JsonLinesDiagnosticListener(java.io.Writer out, String file, boolean closeOnFinish) {
+        this.out = out;
+        this.file = file;
+        this.closeOnFinish = closeOnFinish;
+    }
+
+    @Override
+    public void report(DiagnosticKind kind, String location, Object... args) {
+        String message = args.length == 0 ? kind.template : String.format(kind.template, args);
+        StringBuilder sb = new StringBuilder(128);
+        sb.append("{\"severity\":\"").append(kind.severity)
+          .append("\",\"kind\":\"").append(kind.name())
+          .append("\",\"rule\":\"").append(kind.rule)
+          .append("\",\"message\":");
+        appendJsonString(sb, message);
+        sb.append(",\"location\":");
+        if (location != null) appendJsonString(sb, location); else sb.append("null");
+        if (file != null) {
+            sb.append(",\"file\":");
+            appendJsonString(sb, file);
+        }
+        sb.append("}\n");
+        try {
+            out.write(sb.toString());
+            out.flush();
+        } catch (java.io.IOException e) {
+            System.err.println("Warning: could not write diagnostic: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void finish() {
+        try {
+            if (closeOnFinish) out.close();
+            else out.flush();
+        } catch (java.io.IOException e) {
+            System.err.println("Warning: could not close diagnostics output: " + e.getMessage());
+        }
+    }
+
+    static void appendJsonString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
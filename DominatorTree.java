@@ -0,0 +1,227 @@
+import java.util.*;
+
+/**
+ * DominatorTree - dominators (or post-dominators) of a ControlFlowGraph, with
+ * dominance frontiers.
+ *
+ * Uses the iterative algorithm of Cooper, Harvey and Kennedy ("A Simple, Fast
+ * Dominance Algorithm"): nodes are numbered in reverse postorder and
+ * immediate dominators are refined with the two-finger intersect until
+ * stable. On reducible graphs — everything CFGBuilder produces — this
+ * converges in two passes, so the whole computation is linear in practice.
+ *
+ * Works on the graph's dense node ids (CFGNode.id == index in allNodes).
+ * Post-dominators are dominators of the reversed graph rooted at EXIT.
+ * Nodes not reachable from the root (dead code, or for post-dominators code
+ * that never reaches EXIT) have no immediate dominator.
+ */
+public class DominatorTree {
+    private final ControlFlowGraph cfg;
+    private final boolean post;
+    private final int root;
+    private final int[] idom;        // immediate dominator id, -1 if unreachable; idom[root] == root
+    private final int[] preorder;    // dominator-tree DFS entry/exit times, for O(1) dominates()
+    private final int[] postorder;
+    private int[][] frontiers;       // computed on first use
+
+    private DominatorTree(ControlFlowGraph cfg, boolean post) {
+        this.cfg = cfg;
+        this.post = post;
+        int n = cfg.allNodes.size();
+        this.root = post ? cfg.exit.id : cfg.entry.id;
+
+        // Forward edges of the analyzed direction, as int adjacency
+        int[][] succ = new int[n][];
+        int[][] pred = new int[n][];
+        for (CFGNode node : cfg.allNodes) {
+            List<CFGNode> out = post ? node.predecessors : node.successors;
+            List<CFGNode> in  = post ? node.successors : node.predecessors;
+            succ[node.id] = ids(out);
+            pred[node.id] = ids(in);
+        }
+
+        // Reverse postorder numbering from the root (iterative DFS)
+        int[] rpoNumber = new int[n];
+        Arrays.fill(rpoNumber, -1);
+        int[] order = new int[n];          // rpo index -> node id
+        int count = reversePostorder(succ, rpoNumber, order);
+
+        this.idom = new int[n];
+        Arrays.fill(idom, -1);
+        idom[root] = root;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 1; i < count; i++) {
+                int b = order[i];
+                int newIdom = -1;
+                for (int p : pred[b]) {
+                    if (idom[p] == -1) continue;      // unprocessed or unreachable
+                    newIdom = newIdom == -1 ? p : intersect(p, newIdom, rpoNumber);
+                }
+                if (newIdom != -1 && idom[b] != newIdom) {
+                    idom[b] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+
+        // Dominator tree intervals
+        this.preorder = new int[n];
+        this.postorder = new int[n];
+        numberTree(n);
+    }
+
+    /** Dominators of cfg, rooted at ENTRY. */
+    public static DominatorTree dominators(ControlFlowGraph cfg) {
+        return new DominatorTree(cfg, false);
+    }
+
+    /** Post-dominators of cfg, rooted at EXIT. */
+    public static DominatorTree postDominators(ControlFlowGraph cfg) {
+        return new DominatorTree(cfg, true);
+    }
+
+    private static int[] ids(List<CFGNode> nodes) {
+        int[] result = new int[nodes.size()];
+        for (int i = 0; i < result.length; i++) result[i] = nodes.get(i).id;
+        return result;
+    }
+
+    private int reversePostorder(int[][] succ, int[] rpoNumber, int[] order) {
+        int n = succ.length;
+        int[] post = new int[n];
+        int postCount = 0;
+        boolean[] visited = new boolean[n];
+        int[] stack = new int[n];
+        int[] nextChild = new int[n];
+        int top = 0;
+        stack[top++] = root;
+        visited[root] = true;
+        while (top > 0) {
+            int v = stack[top - 1];
+            if (nextChild[v] < succ[v].length) {
+                int w = succ[v][nextChild[v]++];
+                if (!visited[w]) {
+                    visited[w] = true;
+                    stack[top++] = w;
+                }
+            } else {
+                post[postCount++] = v;
+                top--;
+            }
+        }
+        for (int i = 0; i < postCount; i++) {
+            int v = post[postCount - 1 - i];
+            order[i] = v;
+            rpoNumber[v] = i;
+        }
+        return postCount;
+    }
+
+    private int intersect(int a, int b, int[] rpoNumber) {
+        while (a != b) {
+            while (rpoNumber[a] > rpoNumber[b]) a = idom[a];
+            while (rpoNumber[b] > rpoNumber[a]) b = idom[b];
+        }
+        return a;
+    }
+
+    private void numberTree(int n) {
+        // children lists of the dominator tree (CSR)
+        int[] childCount = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            if (v != root && idom[v] != -1) childCount[idom[v] + 1]++;
+        }
+        for (int v = 0; v < n; v++) childCount[v + 1] += childCount[v];
+        int[] children = new int[childCount[n]];
+        int[] fill = Arrays.copyOf(childCount, n);
+        for (int v = 0; v < n; v++) {
+            if (v != root && idom[v] != -1) children[fill[idom[v]]++] = v;
+        }
+
+        Arrays.fill(preorder, -1);
+        Arrays.fill(postorder, -1);
+        int clock = 0;
+        int[] stack = new int[n];
+        int[] next = new int[n];
+        int top = 0;
+        stack[top++] = root;
+        preorder[root] = clock++;
+        while (top > 0) {
+            int v = stack[top - 1];
+            int c = childCount[v] + next[v];
+            if (c < childCount[v + 1]) {
+                next[v]++;
+                int w = children[c];
+                preorder[w] = clock++;
+                stack[top++] = w;
+            } else {
+                postorder[v] = clock++;
+                top--;
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------ queries
+
+    /** True for post-dominator trees. */
+    public boolean isPostDominatorTree() {
+        return post;
+    }
+
+    /** Whether node is reachable from the root (ENTRY, or EXIT backwards). */
+    public boolean isReachable(CFGNode node) {
+        return idom[node.id] != -1;
+    }
+
+    /** Immediate (post-)dominator of node; null for the root and unreachable nodes. */
+    public CFGNode getImmediateDominator(CFGNode node) {
+        int d = idom[node.id];
+        return d == -1 || node.id == root ? null : cfg.allNodes.get(d);
+    }
+
+    /** Whether a (post-)dominates b. Every reachable node dominates itself. O(1). */
+    public boolean dominates(CFGNode a, CFGNode b) {
+        if (preorder[a.id] == -1 || preorder[b.id] == -1) return false;
+        return preorder[a.id] <= preorder[b.id] && postorder[b.id] <= postorder[a.id];
+    }
+
+    /** The (post-)dominance frontier of node, ordered by node id. */
+    public List<CFGNode> getFrontier(CFGNode node) {
+        if (frontiers == null) frontiers = computeFrontiers();
+        List<CFGNode> result = new ArrayList<>(frontiers[node.id].length);
+        for (int id : frontiers[node.id]) result.add(cfg.allNodes.get(id));
+        return result;
+    }
+
+    // Cooper-Harvey-Kennedy: walk up from each join node's predecessors to its idom
+    private int[][] computeFrontiers() {
+        int n = idom.length;
+        List<Set<Integer>> df = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) df.add(null);
+        for (CFGNode node : cfg.allNodes) {
+            int b = node.id;
+            List<CFGNode> preds = post ? node.successors : node.predecessors;
+            if (idom[b] == -1 || preds.size() < 2) continue;
+            for (CFGNode p : preds) {
+                int runner = p.id;
+                if (idom[runner] == -1) continue;
+                while (runner != idom[b]) {
+                    if (df.get(runner) == null) df.set(runner, new TreeSet<>());
+                    df.get(runner).add(b);
+                    if (runner == root) break;
+                    runner = idom[runner];
+                }
+            }
+        }
+        int[][] result = new int[n][];
+        for (int i = 0; i < n; i++) {
+            Set<Integer> s = df.get(i);
+            result[i] = new int[s == null ? 0 : s.size()];
+            int k = 0;
+            if (s != null) for (int id : s) result[i][k++] = id;
+        }
+        return result;
+    }
+}
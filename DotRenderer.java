@@ -0,0 +1,97 @@
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * DotRenderer - renders DOT files to PNG with Graphviz in the background.
+ *
+ * Each submitted file becomes one `dot -Tpng` process, run on a bounded pool
+ * (one process per CPU) while the analysis carries on. finish() waits for the
+ * outstanding renders and reports them in submission order, so the console
+ * output does not depend on which process completed first.
+ *
+ * A DOT file may only be rewritten once awaitFile() says no queued render
+ * still reads it (e.g. two files of a batch both defining main()).
+ */
+class DotRenderer {
+    private final ExecutorService pool;
+    private final List<Future<Outcome>> pending = new ArrayList<>();
+    private final Map<String, Future<Outcome>> latestByDotFile = new HashMap<>();
+
+    private static final class Outcome {
+        final boolean ok;
+        final String message;
+
+        Outcome(boolean ok, String message) {
+            this.ok = ok;
+            this.message = message;
+        }
+    }
+
+    DotRenderer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    DotRenderer(int maxProcesses) {
+        this.pool = Executors.newFixedThreadPool(Math.max(1, maxProcesses), r -> {
+            Thread t = new Thread(r, "dot-render");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Queues dotFile for rendering to pngFile; returns immediately. */
+    void submit(String dotFile, String pngFile) {
+        Future<Outcome> f = pool.submit(() -> render(dotFile, pngFile));
+        pending.add(f);
+        latestByDotFile.put(dotFile, f);
+    }
+
+    /** Waits until no queued render reads dotFile; its outcome is still reported by finish(). */
+    void awaitFile(String dotFile) {
+        Future<Outcome> f = latestByDotFile.remove(dotFile);
+        if (f == null) return;
+        try {
+            f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // reported by finish()
+        }
+    }
+
+    private static Outcome render(String dotFile, String pngFile) {
+        try {
+            ProcessBuilder pb = new ProcessBuilder("dot", "-Tpng", dotFile, "-o", pngFile);
+            pb.redirectErrorStream(true);
+            pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            int exitCode = pb.start().waitFor();
+            if (exitCode == 0) {
+                return new Outcome(true, "Generated: " + pngFile);
+            }
+            return new Outcome(false, "Warning: Failed to generate " + pngFile + " (exit code: " + exitCode + ")");
+        } catch (IOException | InterruptedException e) {
+            return new Outcome(false, "Warning: Could not generate PNG (is Graphviz installed?): " + e.getMessage());
+        }
+    }
+
+    /** Waits for every queued render, prints the outcomes and stops the pool. */
+    void finish() {
+        for (Future<Outcome> f : pending) {
+            Outcome outcome;
+            try {
+                outcome = f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                outcome = new Outcome(false, "Warning: Could not generate PNG: " + e.getCause().getMessage());
+            }
+            if (outcome.ok) System.out.println(outcome.message);
+            else System.err.println(outcome.message);
+        }
+        pending.clear();
+        latestByDotFile.clear();
+        pool.shutdown();
+    }
+}
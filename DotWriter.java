@@ -0,0 +1,40 @@
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * DotWriter - helpers shared by the DOT emitters (ControlFlowGraph,
+ * DependencyGraph), which write straight to a Writer instead of building the
+ * whole document in memory.
+ */
+class DotWriter {
+
+    private DotWriter() {}
+
+    /**
+     * Writes s for use inside a double-quoted DOT string: '"' becomes \".
+     * Single pass; unchanged runs are written without copying.
+     */
+    static void writeEscaped(Writer out, String s) throws IOException {
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == '"') {
+                out.write(s, start, i - start);
+                out.write("\\\"");
+                start = i + 1;
+            }
+        }
+        out.write(s, start, s.length() - start);
+    }
+
+    /** Writes name as a DOT identifier: prefix, then [a-zA-Z0-9_] kept and anything else as '_'. */
+    static void writeId(Writer out, String prefix, String name) throws IOException {
+        out.write(prefix);
+        for (int i = 0; i < name.length(); ) {
+            int cp = name.codePointAt(i);
+            boolean keep = (cp >= 'a' && cp <= 'z') || (cp >= 'A' && cp <= 'Z')
+                        || (cp >= '0' && cp <= '9') || cp == '_';
+            out.write(keep ? (char) cp : '_');
+            i += Character.charCount(cp);
+        }
+    }
+}
@@ -0,0 +1,520 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * FunctionSummaries - interprocedural ownership summaries used by the leak /
+ * double-free tracking in SemanticAnalyzer.
+ *
+ * For every function with a body a summary records whether it
+ *   - returns a fresh heap allocation (like malloc),
+ *   - frees parameter N (like free),
+ *   - stores parameter N somewhere that outlives the call (ownership transfer).
+ *
+ * Summaries are computed bottom-up over the call graph: strongly connected
+ * components are found with Tarjan's algorithm (which emits callees before
+ * callers) and each SCC is iterated to a fixpoint. The well-known allocator /
+ * deallocator families are seeded as builtins.
+ *
+ * Summaries from previously analysed files are persisted in a small binary
+ * cache, so analysing one Redis file reuses the summaries of helpers defined in
+ * adlist.c or zmalloc.c instead of treating them as unknown. Entries are keyed
+ * by (defining file, name); static functions are file-local and never exported,
+ * and a name exported by more than one file is ambiguous, so its callee is
+ * treated as unknown.
+ */
+public class FunctionSummaries {
+
+    public static final String DEFAULT_CACHE_FILE = "function_summaries.cache";
+
+    private static final int CACHE_MAGIC   = 0x46534D31; // "FSM1"
+    private static final int CACHE_VERSION = 2;
+
+    // Builtin seeds — authoritative, never overridden by computed summaries
+    static final Set<String> ALLOC_FUNCTIONS = new HashSet<>(Arrays.asList(
+        "malloc", "calloc", "realloc",
+        "zmalloc", "zcalloc", "zrealloc", "zmalloc_no_tcache", "ztry_malloc",
+        "zstrdup", "zstrndup",
+        "sdsnew", "sdsnewlen", "sdsempty", "sdsdup", "sdsMakeRoomFor", "sdsRemoveFreeSpace",
+        "listCreate", "dictCreate", "raxNew", "ziplistNew", "listpackNew"
+    ));
+    static final Set<String> FREE_FUNCTIONS = new HashSet<>(Arrays.asList(
+        "free", "zfree", "zfree_no_tcache",
+        "sdsfree", "sdsfreegeneric",
+        "listRelease", "dictRelease", "raxFree"
+    ));
+
+    /** Summary of a single function's ownership behaviour. */
+    static class FunctionSummary {
+        final String name;
+        final String sourceFile;   // defining file, or null for builtins / in-memory only
+        boolean returnsFresh;
+        long freesParams;          // bit i set: parameter i is freed
+        long storesParams;         // bit i set: parameter i escapes (stored / ownership taken)
+
+        FunctionSummary(String name, String sourceFile) {
+            this.name = name;
+            this.sourceFile = sourceFile;
+        }
+
+        boolean frees(int param)  { return param < 64 && (freesParams & (1L << param)) != 0; }
+        // Parameters beyond the mask width are conservatively treated as stored
+        boolean stores(int param) { return param >= 64 || (storesParams & (1L << param)) != 0; }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(name).append(":");
+            if (returnsFresh) sb.append(" returns-fresh");
+            for (int i = 0; i < 64; i++) {
+                if (frees(i)) sb.append(" frees(").append(i).append(")");
+                if ((storesParams & (1L << i)) != 0) sb.append(" stores(").append(i).append(")");
+            }
+            return sb.toString();
+        }
+    }
+
+    /** Size + mtime of a summarized source file, used to drop stale cache entries. */
+    private static class SourceStamp {
+        final long size;
+        final long mtime;
+
+        SourceStamp(long size, long mtime) {
+            this.size = size;
+            this.mtime = mtime;
+        }
+
+        static SourceStamp of(File f) {
+            return new SourceStamp(f.length(), f.lastModified());
+        }
+
+        boolean matches(File f) {
+            return f.exists() && f.length() == size && f.lastModified() == mtime;
+        }
+    }
+
+    // Definitions of the program summarized last (static ones included)
+    private final Map<String, FunctionSummary> local = new HashMap<>();
+    // Non-static definitions of every summarized file: name -> defining file -> summary
+    private final Map<String, Map<String, FunctionSummary>> exported = new HashMap<>();
+    private final Map<String, SourceStamp> sources = new HashMap<>();
+    private final Map<String, FunctionSummary> builtins = new HashMap<>();
+
+    public FunctionSummaries() {
+        for (String name : ALLOC_FUNCTIONS) {
+            FunctionSummary s = new FunctionSummary(name, null);
+            s.returnsFresh = true;
+            builtins.put(name, s);
+        }
+        for (String name : FREE_FUNCTIONS) {
+            FunctionSummary s = new FunctionSummary(name, null);
+            s.freesParams = 1L; // frees its first argument
+            builtins.put(name, s);
+        }
+    }
+
+    /** Returns the summary for a function, or null if nothing is known about it. */
+    public FunctionSummary get(String name) {
+        FunctionSummary builtin = builtins.get(name);
+        if (builtin != null) return builtin;
+        if (local.containsKey(name)) return local.get(name);
+        // Another file's definition is only used when it is the single one under this name
+        Map<String, FunctionSummary> bySource = exported.get(name);
+        return bySource != null && bySource.size() == 1 ? bySource.values().iterator().next() : null;
+    }
+
+    public boolean returnsFreshAllocation(String name) {
+        FunctionSummary s = get(name);
+        return s != null && s.returnsFresh;
+    }
+
+    public boolean freesParam(String name, int param) {
+        FunctionSummary s = get(name);
+        return s != null && s.frees(param);
+    }
+
+    /**
+     * True when passing a pointer as argument `param` may transfer ownership.
+     * Unknown callees are assumed to take ownership (the conservative choice
+     * for leak reporting).
+     */
+    public boolean mayStoreParam(String name, int param) {
+        FunctionSummary s = get(name);
+        return s == null || s.stores(param);
+    }
+
+    public int size() {
+        Set<FunctionSummary> all = Collections.newSetFromMap(new IdentityHashMap<>());
+        all.addAll(local.values());
+        for (Map<String, FunctionSummary> bySource : exported.values()) all.addAll(bySource.values());
+        return all.size();
+    }
+
+    // --------------------------------------------------------- computation
+
+    /**
+     * Compute summaries for every function defined in program, replacing any
+     * summaries previously recorded for sourceFile (which may be null). Its
+     * non-static definitions are exported for later files.
+     */
+    public void summarizeProgram(ProgramNode program, String sourceFile) {
+        String sourceKey = sourceFile != null ? new File(sourceFile).getAbsolutePath() : null;
+        if (sourceKey != null) {
+            for (Map<String, FunctionSummary> bySource : exported.values()) bySource.remove(sourceKey);
+            exported.values().removeIf(Map::isEmpty);
+            sources.put(sourceKey, SourceStamp.of(new File(sourceKey)));
+        }
+        local.clear();
+
+        // Collect defined functions (prototypes have no body and are skipped)
+        Map<String, FuncDeclNode> defined = new LinkedHashMap<>();
+        for (ASTNode node : program.declarations) {
+            if (node instanceof FuncDeclNode && ((FuncDeclNode) node).body != null) {
+                FuncDeclNode func = (FuncDeclNode) node;
+                defined.put(func.name, func);
+            }
+        }
+        Set<String> globals = new HashSet<>();
+        for (ASTNode node : program.declarations) {
+            if (node instanceof VarDeclNode) globals.add(((VarDeclNode) node).name);
+        }
+
+        // Call graph restricted to functions defined in this program
+        Map<String, Set<String>> calls = new HashMap<>();
+        for (FuncDeclNode func : defined.values()) {
+            Set<String> callees = new LinkedHashSet<>();
+            collectCallees(func.body, callees);
+            callees.retainAll(defined.keySet());
+            calls.put(func.name, callees);
+        }
+
+        for (List<String> scc : stronglyConnectedComponents(defined.keySet(), calls)) {
+            for (String name : scc) {
+                local.put(name, new FunctionSummary(name, sourceKey));
+            }
+            // Iterate the component to a fixpoint. The facts are not all monotone, but they
+            // are stratified: frees only grows with the callees' frees, so it stabilizes
+            // first; stores shrinks as frees grows (a freed argument is not escaped) but
+            // otherwise only grows with the callees' stores, so it settles next; returnsFresh
+            // likewise settles once frees and stores are fixed. Each fact is finite, so the
+            // loop terminates.
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (String name : scc) {
+                    FunctionSummary current = local.get(name);
+                    FunctionSummary next = summarizeFunction(defined.get(name), sourceKey, globals);
+                    if (next.returnsFresh != current.returnsFresh
+                            || next.freesParams != current.freesParams
+                            || next.storesParams != current.storesParams) {
+                        local.put(name, next);
+                        changed = true;
+                    }
+                }
+                if (scc.size() == 1 && !calls.get(scc.get(0)).contains(scc.get(0))) break;
+            }
+        }
+
+        if (sourceKey != null) {
+            for (FuncDeclNode func : defined.values()) {
+                if (func.isStatic) continue;
+                exported.computeIfAbsent(func.name, k -> new HashMap<>()).put(sourceKey, local.get(func.name));
+            }
+        }
+    }
+
+    private void collectCallees(ASTNode node, Set<String> out) {
+        if (node == null) return;
+        if (node instanceof FuncCallNode) {
+            FuncCallNode call = (FuncCallNode) node;
+            out.add(call.name);
+            for (ASTNode arg : call.args) collectCallees(arg, out);
+        } else if (node instanceof BlockNode) {
+            for (ASTNode stmt : ((BlockNode) node).statements) collectCallees(stmt, out);
+        } else if (node instanceof VarDeclNode) {
+            collectCallees(((VarDeclNode) node).initExpr, out);
+        } else if (node instanceof IfStmtNode) {
+            IfStmtNode ifStmt = (IfStmtNode) node;
+            collectCallees(ifStmt.condition, out);
+            collectCallees(ifStmt.thenBranch, out);
+            collectCallees(ifStmt.elseBranch, out);
+        } else if (node instanceof WhileStmtNode) {
+            collectCallees(((WhileStmtNode) node).condition, out);
+            collectCallees(((WhileStmtNode) node).body, out);
+        } else if (node instanceof ReturnStmtNode) {
+            collectCallees(((ReturnStmtNode) node).expr, out);
+        } else if (node instanceof BinaryExprNode) {
+            collectCallees(((BinaryExprNode) node).left, out);
+            collectCallees(((BinaryExprNode) node).right, out);
+        } else if (node instanceof UnaryExprNode) {
+            collectCallees(((UnaryExprNode) node).expr, out);
+        } else if (node instanceof CastExprNode) {
+            collectCallees(((CastExprNode) node).expr, out);
+        } else if (node instanceof TernaryExprNode) {
+            TernaryExprNode t = (TernaryExprNode) node;
+            collectCallees(t.condition, out);
+            collectCallees(t.thenExpr, out);
+            collectCallees(t.elseExpr, out);
+        }
+    }
+
+    /** Tarjan's SCC algorithm; components are returned callees-first. */
+    private static List<List<String>> stronglyConnectedComponents(Set<String> nodes, Map<String, Set<String>> edges) {
+        List<List<String>> result = new ArrayList<>();
+        Map<String, Integer> index = new HashMap<>();
+        Map<String, Integer> lowLink = new HashMap<>();
+        Deque<String> stack = new ArrayDeque<>();
+        Set<String> onStack = new HashSet<>();
+        int[] counter = {0};
+        for (String node : nodes) {
+            if (!index.containsKey(node)) {
+                strongConnect(node, edges, index, lowLink, stack, onStack, counter, result);
+            }
+        }
+        return result;
+    }
+
+    private static void strongConnect(String v, Map<String, Set<String>> edges,
+                                      Map<String, Integer> index, Map<String, Integer> lowLink,
+                                      Deque<String> stack, Set<String> onStack,
+                                      int[] counter, List<List<String>> result) {
+        index.put(v, counter[0]);
+        lowLink.put(v, counter[0]);
+        counter[0]++;
+        stack.push(v);
+        onStack.add(v);
+
+        for (String w : edges.getOrDefault(v, Collections.emptySet())) {
+            if (!index.containsKey(w)) {
+                strongConnect(w, edges, index, lowLink, stack, onStack, counter, result);
+                lowLink.put(v, Math.min(lowLink.get(v), lowLink.get(w)));
+            } else if (onStack.contains(w)) {
+                lowLink.put(v, Math.min(lowLink.get(v), index.get(w)));
+            }
+        }
+
+        if (lowLink.get(v).equals(index.get(v))) {
+            List<String> component = new ArrayList<>();
+            String w;
+            do {
+                w = stack.pop();
+                onStack.remove(w);
+                component.add(w);
+            } while (!w.equals(v));
+            result.add(component);
+        }
+    }
+
+    /** Per-function walk state for summarizeFunction. */
+    private static class WalkState {
+        final FunctionSummary summary;
+        final Map<String, Integer> paramIndex = new HashMap<>();
+        final Set<String> fresh = new HashSet<>();    // locals holding a fresh allocation
+        final Set<String> locals = new HashSet<>();
+        final Set<String> globals;
+
+        WalkState(FunctionSummary summary, Set<String> globals) {
+            this.summary = summary;
+            this.globals = globals;
+        }
+
+        int paramOf(ASTNode node) {
+            if (!(node instanceof IdNode)) return -1;
+            Integer idx = paramIndex.get(((IdNode) node).name);
+            return idx != null ? idx : -1;
+        }
+    }
+
+    private FunctionSummary summarizeFunction(FuncDeclNode func, String sourceKey, Set<String> globals) {
+        WalkState st = new WalkState(new FunctionSummary(func.name, sourceKey), globals);
+        for (int i = 0; i < func.args.size(); i++) {
+            st.paramIndex.put(func.args.get(i).name, i);
+        }
+        walk(func.body, st);
+        return st.summary;
+    }
+
+    private void walk(ASTNode node, WalkState st) {
+        if (node == null) return;
+
+        if (node instanceof BlockNode) {
+            for (ASTNode stmt : ((BlockNode) node).statements) walk(stmt, st);
+        }
+        else if (node instanceof VarDeclNode) {
+            VarDeclNode decl = (VarDeclNode) node;
+            st.locals.add(decl.name);
+            st.paramIndex.remove(decl.name); // shadowed
+            walk(decl.initExpr, st);
+            assign(decl.name, decl.initExpr, st);
+        }
+        else if (node instanceof IfStmtNode) {
+            IfStmtNode ifStmt = (IfStmtNode) node;
+            walk(ifStmt.condition, st);
+            walk(ifStmt.thenBranch, st);
+            walk(ifStmt.elseBranch, st);
+        }
+        else if (node instanceof WhileStmtNode) {
+            walk(((WhileStmtNode) node).condition, st);
+            walk(((WhileStmtNode) node).body, st);
+        }
+        else if (node instanceof ReturnStmtNode) {
+            ASTNode expr = ((ReturnStmtNode) node).expr;
+            walk(expr, st);
+            if (expr instanceof IdNode && st.fresh.contains(((IdNode) expr).name)) {
+                st.summary.returnsFresh = true;
+            } else if (expr instanceof FuncCallNode && returnsFreshAllocation(((FuncCallNode) expr).name)) {
+                st.summary.returnsFresh = true;
+            } else if (expr instanceof CastExprNode && ((CastExprNode) expr).expr instanceof FuncCallNode
+                    && returnsFreshAllocation(((FuncCallNode) ((CastExprNode) expr).expr).name)) {
+                st.summary.returnsFresh = true;
+            }
+        }
+        else if (node instanceof BinaryExprNode) {
+            BinaryExprNode bin = (BinaryExprNode) node;
+            walk(bin.left, st);
+            walk(bin.right, st);
+            if (bin.operator.equals("=")) {
+                if (bin.left instanceof IdNode) {
+                    String target = ((IdNode) bin.left).name;
+                    boolean escapes = st.globals.contains(target) && !st.locals.contains(target)
+                            && !st.paramIndex.containsKey(target);
+                    if (escapes) {
+                        escape(bin.right, st);
+                    } else {
+                        assign(target, bin.right, st);
+                    }
+                } else if (bin.left instanceof BinaryExprNode || bin.left instanceof UnaryExprNode) {
+                    // s->field = p, s.field = p, *pp = p, a[i] = p
+                    escape(bin.right, st);
+                }
+            }
+        }
+        else if (node instanceof UnaryExprNode) {
+            walk(((UnaryExprNode) node).expr, st);
+        }
+        else if (node instanceof CastExprNode) {
+            walk(((CastExprNode) node).expr, st);
+        }
+        else if (node instanceof TernaryExprNode) {
+            TernaryExprNode t = (TernaryExprNode) node;
+            walk(t.condition, st);
+            walk(t.thenExpr, st);
+            walk(t.elseExpr, st);
+        }
+        else if (node instanceof FuncCallNode) {
+            FuncCallNode call = (FuncCallNode) node;
+            for (int k = 0; k < call.args.size(); k++) {
+                ASTNode arg = call.args.get(k);
+                walk(arg, st);
+                int param = st.paramOf(arg);
+                if (freesParam(call.name, k)) {
+                    if (param >= 0 && param < 64) st.summary.freesParams |= 1L << param;
+                    if (arg instanceof IdNode) st.fresh.remove(((IdNode) arg).name);
+                } else if (mayStoreParam(call.name, k)) {
+                    escape(arg, st);
+                }
+            }
+        }
+    }
+
+    /** target = value inside the function: track fresh allocations through locals. */
+    private void assign(String target, ASTNode value, WalkState st) {
+        st.fresh.remove(target);
+        Integer param = null;
+        if (value instanceof CastExprNode) value = ((CastExprNode) value).expr;
+        if (value instanceof FuncCallNode && returnsFreshAllocation(((FuncCallNode) value).name)) {
+            st.fresh.add(target);
+        } else if (value instanceof IdNode) {
+            String source = ((IdNode) value).name;
+            if (st.fresh.remove(source)) st.fresh.add(target);
+            param = st.paramIndex.get(source);
+        }
+        // A reassigned name no longer refers to its parameter, unless it now aliases one
+        if (param != null) st.paramIndex.put(target, param);
+        else st.paramIndex.remove(target);
+    }
+
+    /** value escapes the function (stored into memory or handed to an owning callee). */
+    private void escape(ASTNode value, WalkState st) {
+        if (value instanceof CastExprNode) value = ((CastExprNode) value).expr;
+        if (!(value instanceof IdNode)) return;
+        int param = st.paramOf(value);
+        if (param >= 0 && param < 64) st.summary.storesParams |= 1L << param;
+        st.fresh.remove(((IdNode) value).name);
+    }
+
+    // --------------------------------------------------------- persistence
+
+    /**
+     * Load summaries from a cache file. Entries whose defining source file has
+     * changed (size or mtime) or disappeared are dropped. A missing or corrupt
+     * cache simply yields an empty set of summaries.
+     */
+    public static FunctionSummaries load(String cacheFile) {
+        FunctionSummaries result = new FunctionSummaries();
+        File f = new File(cacheFile);
+        if (!f.isFile()) return result;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION) return result;
+
+            int sourceCount = in.readInt();
+            Set<String> valid = new HashSet<>();
+            for (int i = 0; i < sourceCount; i++) {
+                String path = in.readUTF();
+                SourceStamp stamp = new SourceStamp(in.readLong(), in.readLong());
+                if (stamp.matches(new File(path))) {
+                    valid.add(path);
+                    result.sources.put(path, stamp);
+                }
+            }
+
+            int summaryCount = in.readInt();
+            for (int i = 0; i < summaryCount; i++) {
+                String name = in.readUTF();
+                String source = in.readUTF();
+                byte flags = in.readByte();
+                long frees = in.readLong();
+                long stores = in.readLong();
+                if (!valid.contains(source)) continue;
+                FunctionSummary s = new FunctionSummary(name, source);
+                s.returnsFresh = (flags & 1) != 0;
+                s.freesParams = frees;
+                s.storesParams = stores;
+                result.exported.computeIfAbsent(name, k -> new HashMap<>()).put(source, s);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Ignoring unreadable summary cache " + cacheFile + ": " + e.getMessage());
+            return new FunctionSummaries();
+        }
+        return result;
+    }
+
+    /** Write all exported (file-backed, non-static) summaries to the cache file. */
+    public void save(String cacheFile) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cacheFile)))) {
+            out.writeInt(CACHE_MAGIC);
+            out.writeInt(CACHE_VERSION);
+
+            out.writeInt(sources.size());
+            for (Map.Entry<String, SourceStamp> e : sources.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeLong(e.getValue().size);
+                out.writeLong(e.getValue().mtime);
+            }
+
+            List<FunctionSummary> persisted = new ArrayList<>();
+            for (Map<String, FunctionSummary> bySource : exported.values()) {
+                persisted.addAll(bySource.values());
+            }
+            out.writeInt(persisted.size());
+            for (FunctionSummary s : persisted) {
+                out.writeUTF(s.name);
+                out.writeUTF(s.sourceFile);
+                out.writeByte(s.returnsFresh ? 1 : 0);
+                out.writeLong(s.freesParams);
+                out.writeLong(s.storesParams);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not write summary cache " + cacheFile + ": " + e.getMessage());
+        }
+    }
+}
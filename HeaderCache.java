@@ -0,0 +1,256 @@
+import java.io.*;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HeaderCache - the header model shared by every translation unit of a run,
+ * optionally persisted so headers shared by many files (server.h, sds.h,
+ * adlist.h, ...) are only scanned again when they change.
+ *
+ * Within a process each header is resolved exactly once: the first lookup
+ * validates or scans it and every later lookup (from any thread) gets the same
+ * frozen HeaderDeclarations. Per-file state such as used symbols lives in each
+ * file's CustomLibraryResolver, never here.
+ *
+ * Persisted entries are keyed by the header's absolute path and validated by
+ * size + mtime; if those differ the content hash decides, so a header that was
+ * only touched (or checked out again) is still reused. Each entry holds only
+ * the header's own declarations plus its #include list: an edit to a nested
+ * header invalidates that header's entry, and every header including it picks
+ * the change up while CustomLibraryResolver walks the includes.
+ */
+public class HeaderCache {
+
+    public static final String DEFAULT_CACHE_FILE = "header_summaries.cache";
+
+    private static final int CACHE_MAGIC   = 0x48534331; // "HSC1"
+    private static final int CACHE_VERSION = 1;
+
+    private static class Entry {
+        final long size;
+        final long mtime;
+        final byte[] hash;
+        final HeaderDeclarations decls;
+
+        Entry(long size, long mtime, byte[] hash, HeaderDeclarations decls) {
+            this.size = size;
+            this.mtime = mtime;
+            this.hash = hash;
+            this.decls = decls;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();              // persisted
+    private final Map<String, HeaderDeclarations> resolved = new ConcurrentHashMap<>(); // this run
+    private volatile boolean dirty;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * Declarations of the header at path: resolved once per run, from the
+     * persisted entry when it is still current, otherwise freshly scanned.
+     */
+    public HeaderDeclarations get(String path) throws IOException {
+        HeaderDeclarations known = resolved.get(path);
+        if (known != null) {
+            hits.incrementAndGet();
+            return known;
+        }
+        try {
+            return resolved.computeIfAbsent(path, p -> {
+                try {
+                    return validate(p);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private HeaderDeclarations validate(String path) throws IOException {
+        File f = new File(path);
+        long size = f.length();
+        long mtime = f.lastModified();
+
+        Entry e = entries.get(path);
+        if (e != null && e.size == size && e.mtime == mtime) {
+            hits.incrementAndGet();
+            return e.decls;
+        }
+
+        byte[] content = Files.readAllBytes(f.toPath());
+        byte[] hash = sha256(content);
+        if (e != null && Arrays.equals(e.hash, hash)) {
+            // Touched but unchanged: refresh the stamp only
+            entries.put(path, new Entry(size, mtime, hash, e.decls));
+            dirty = true;
+            hits.incrementAndGet();
+            return e.decls;
+        }
+
+        misses.incrementAndGet();
+        HeaderDeclarations decls = HeaderScanner.scan(new String(content)).freeze();
+        entries.put(path, new Entry(size, mtime, hash, decls));
+        dirty = true;
+        return decls;
+    }
+
+    /** Headers reused without scanning. */
+    public int getHitCount()  { return hits.get(); }
+    /** Headers scanned. */
+    public int getMissCount() { return misses.get(); }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // --------------------------------------------------------- persistence
+
+    /**
+     * Load the cache file. A missing, foreign or corrupt file yields an empty
+     * cache; entries are validated lazily in get().
+     */
+    public static HeaderCache load(String cacheFile) {
+        HeaderCache result = new HeaderCache();
+        File f = new File(cacheFile);
+        if (!f.isFile()) return result;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION) return result;
+
+            int entryCount = in.readInt();
+            for (int i = 0; i < entryCount; i++) {
+                String path = in.readUTF();
+                long size = in.readLong();
+                long mtime = in.readLong();
+                byte[] hash = new byte[in.readUnsignedByte()];
+                in.readFully(hash);
+                result.entries.put(path, new Entry(size, mtime, hash, readDeclarations(in).freeze()));
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Ignoring unreadable header cache " + cacheFile + ": " + e.getMessage());
+            return new HeaderCache();
+        }
+        return result;
+    }
+
+    /** Write the cache file if anything changed; entries of deleted headers are dropped. */
+    public synchronized void save(String cacheFile) {
+        if (!dirty) return;
+        entries.keySet().removeIf(path -> !new File(path).isFile());
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cacheFile)))) {
+            out.writeInt(CACHE_MAGIC);
+            out.writeInt(CACHE_VERSION);
+
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> me : entries.entrySet()) {
+                Entry e = me.getValue();
+                out.writeUTF(me.getKey());
+                out.writeLong(e.size);
+                out.writeLong(e.mtime);
+                out.writeByte(e.hash.length);
+                out.write(e.hash);
+                writeDeclarations(out, e.decls);
+            }
+            dirty = false;
+        } catch (IOException e) {
+            System.err.println("Warning: Could not write header cache " + cacheFile + ": " + e.getMessage());
+        }
+    }
+
+    private static void writeDeclarations(DataOutputStream out, HeaderDeclarations d) throws IOException {
+        writeStrings(out, d.includes);
+        writeStringMap(out, d.typedefs);
+
+        out.writeInt(d.structs.size());
+        for (Map.Entry<String, CustomLibraryResolver.CustomStruct> e : d.structs.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeUTF(e.getValue().name);
+            writeStringMap(out, e.getValue().fields);
+        }
+
+        out.writeInt(d.functions.size());
+        for (CustomLibraryResolver.CustomFunction f : d.functions.values()) {
+            out.writeUTF(f.name);
+            out.writeUTF(f.returnType);
+            writeStrings(out, f.paramTypes);
+        }
+
+        writeStringMap(out, d.externVariables);
+
+        out.writeInt(d.defineConstants.size());
+        for (Map.Entry<String, Integer> e : d.defineConstants.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeInt(e.getValue());
+        }
+
+        writeStrings(out, d.macroNames);
+    }
+
+    private static HeaderDeclarations readDeclarations(DataInputStream in) throws IOException {
+        HeaderDeclarations d = new HeaderDeclarations();
+        readStrings(in, d.includes);
+        readStringMap(in, d.typedefs);
+
+        int structCount = in.readInt();
+        for (int i = 0; i < structCount; i++) {
+            String key = in.readUTF();
+            CustomLibraryResolver.CustomStruct s = new CustomLibraryResolver.CustomStruct(in.readUTF());
+            readStringMap(in, s.fields);
+            d.structs.put(key, s);
+        }
+
+        int functionCount = in.readInt();
+        for (int i = 0; i < functionCount; i++) {
+            String name = in.readUTF();
+            String returnType = in.readUTF();
+            List<String> params = new ArrayList<>();
+            readStrings(in, params);
+            d.functions.put(name, new CustomLibraryResolver.CustomFunction(name, returnType, params));
+        }
+
+        readStringMap(in, d.externVariables);
+
+        int defineCount = in.readInt();
+        for (int i = 0; i < defineCount; i++) {
+            d.defineConstants.put(in.readUTF(), in.readInt());
+        }
+
+        readStrings(in, d.macroNames);
+        return d;
+    }
+
+    private static void writeStrings(DataOutputStream out, Collection<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String v : values) out.writeUTF(v);
+    }
+
+    private static void readStrings(DataInputStream in, Collection<String> into) throws IOException {
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) into.add(in.readUTF());
+    }
+
+    private static void writeStringMap(DataOutputStream out, Map<String, String> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, String> e : map.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeUTF(e.getValue());
+        }
+    }
+
+    private static void readStringMap(DataInputStream in, Map<String, String> into) throws IOException {
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) into.put(in.readUTF(), in.readUTF());
+    }
+}
@@ -0,0 +1,78 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HeaderIndex - in-memory index of the directories searched for #include
+ * files, shared by CustomLibraryResolver and DependencyGraph.
+ *
+ * Each directory is listed once (one DirectoryStream) the first time a lookup
+ * touches it; every later probe — hit or miss — is answered from the cached
+ * listing instead of a File.exists() syscall. A header name with directories
+ * ("sys/queue.h") lists each directory on its path. Missing directories are
+ * cached as empty, so negative results cost nothing on repeat.
+ *
+ * Thread-safe. Files created after a directory was listed are not seen.
+ */
+public class HeaderIndex {
+
+    /** Subdirectories of every search root that are probed, in order. */
+    static final String[] ROOT_SUBDIRS = {".", "include", "src"};
+
+    private static final class Shared {
+        static final HeaderIndex INSTANCE = new HeaderIndex();
+    }
+
+    private final Map<Path, Set<String>> listings = new ConcurrentHashMap<>();
+
+    /** The process-wide index. */
+    public static HeaderIndex shared() {
+        return Shared.INSTANCE;
+    }
+
+    /**
+     * First root (each probed as root/, root/include/, root/src/) containing
+     * headerName, as an absolute path, or null.
+     */
+    public String find(String headerName, List<String> roots) {
+        for (String root : roots) {
+            for (String sub : ROOT_SUBDIRS) {
+                File dir = sub.equals(".") ? new File(root) : new File(root, sub);
+                String found = findIn(dir.getPath(), headerName);
+                if (found != null) return found;
+            }
+        }
+        return null;
+    }
+
+    /** Absolute path of dir/headerName if it exists, or null. */
+    public String findIn(String dir, String headerName) {
+        File candidate = new File(dir, headerName);
+        if (headerName.contains("..") || new File(headerName).isAbsolute()) {
+            // Paths leaving the directory are not indexed
+            return candidate.exists() ? candidate.getAbsolutePath() : null;
+        }
+
+        Path current = Paths.get(dir).toAbsolutePath().normalize();
+        for (String part : headerName.split("[/\\\\]")) {
+            if (part.isEmpty() || part.equals(".")) continue;
+            if (!listing(current).contains(part)) return null;
+            current = current.resolve(part);
+        }
+        return candidate.getAbsolutePath();
+    }
+
+    private Set<String> listing(Path dir) {
+        return listings.computeIfAbsent(dir, d -> {
+            Set<String> names = new HashSet<>();
+            if (!Files.isDirectory(d)) return names;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(d)) {
+                for (Path entry : stream) names.add(entry.getFileName().toString());
+            } catch (IOException | DirectoryIteratorException e) {
+                System.err.println("Warning: Could not list " + d + ": " + e.getMessage());
+            }
+            return names;
+        });
+    }
+}
@@ -0,0 +1,630 @@
+import java.util.*;
+
+/**
+ * Declarations extracted from one header (or one block of preprocessor lines).
+ * Maps keep source order; a later declaration of the same name overwrites an
+ * earlier one, as when merged into CustomLibraryResolver. Once frozen an
+ * instance is read-only and may be shared between files and threads.
+ */
+class HeaderDeclarations {
+    final List<String> includes;                                      // #include "..." only
+    final Map<String, String> typedefs;
+    final Map<String, CustomLibraryResolver.CustomStruct> structs;
+    final Map<String, CustomLibraryResolver.CustomFunction> functions;
+    final Map<String, String> externVariables;
+    final Map<String, Integer> defineConstants;
+    final Set<String> macroNames;                                     // other #defines and enum constants
+
+    HeaderDeclarations() {
+        includes = new ArrayList<>();
+        typedefs = new LinkedHashMap<>();
+        structs = new LinkedHashMap<>();
+        functions = new LinkedHashMap<>();
+        externVariables = new LinkedHashMap<>();
+        defineConstants = new LinkedHashMap<>();
+        macroNames = new LinkedHashSet<>();
+    }
+
+    private HeaderDeclarations(HeaderDeclarations d) {
+        includes = Collections.unmodifiableList(d.includes);
+        typedefs = Collections.unmodifiableMap(d.typedefs);
+        structs = Collections.unmodifiableMap(d.structs);
+        functions = Collections.unmodifiableMap(d.functions);
+        externVariables = Collections.unmodifiableMap(d.externVariables);
+        defineConstants = Collections.unmodifiableMap(d.defineConstants);
+        macroNames = Collections.unmodifiableSet(d.macroNames);
+    }
+
+    /** Read-only view; the builder instance must not be modified afterwards. */
+    HeaderDeclarations freeze() {
+        return new HeaderDeclarations(this);
+    }
+}
+
+/**
+ * Single-pass header scanner.
+ *
+ * A light C lexer turns the header into tokens in one sweep over the text:
+ * comments are dropped, __attribute__((...)) specifiers are skipped, and
+ * preprocessor lines are handled on the spot (#include "x" and object-like
+ * #define). Enum constants are picked up by the lexer as they stream past.
+ * A small recursive-descent pass over the tokens then recognizes top-level
+ * typedefs, struct definitions, function prototypes/definitions and extern
+ * variables; function bodies are skipped without being parsed.
+ *
+ * Cost is O(size of header) with no regular expressions.
+ */
+class HeaderScanner {
+    private static final int IDENT = 0, NUMBER = 1, STRING = 2, PUNCT = 3;
+
+    // Storage classes and function specifiers: not part of the declared type
+    private static final Set<String> STORAGE = new HashSet<>(Arrays.asList(
+        "extern", "static", "inline", "__inline", "__inline__", "register", "auto",
+        "_Thread_local", "__thread", "_Noreturn", "__extension__"));
+    // Qualifiers dropped from declarator pointers (char *restrict p)
+    private static final Set<String> POINTER_QUALIFIERS = new HashSet<>(Arrays.asList(
+        "const", "volatile", "restrict", "__restrict", "__restrict__", "_Nullable", "_Nonnull"));
+    // Type keywords that may combine with each other ("unsigned long long")
+    private static final Set<String> TYPE_KEYWORDS = new HashSet<>(Arrays.asList(
+        "void", "char", "short", "int", "long", "float", "double", "signed", "unsigned",
+        "_Bool", "bool", "__int128", "_Complex"));
+    // Qualifiers kept in the type text, as written ("const char*", "volatile int")
+    private static final Set<String> TYPE_QUALIFIERS = new HashSet<>(Arrays.asList(
+        "const", "volatile", "_Atomic"));
+
+    private final String src;
+    private final int len;
+    private int pos;
+    private boolean lineStart = true;
+    private final boolean includesOnly;
+    private final HeaderDeclarations out = new HeaderDeclarations();
+
+    // Token stream (parallel arrays)
+    private int[] kinds = new int[256];
+    private String[] texts = new String[256];
+    private int count;
+
+    // Enum constant tracking while lexing: 0 = idle, 1 = after "enum" [tag], 2 = in body
+    private int enumState;
+    private int enumDepth;
+    private boolean enumExpectName;
+
+    private HeaderScanner(String src, boolean includesOnly) {
+        this.src = src;
+        this.len = src.length();
+        this.includesOnly = includesOnly;
+    }
+
+    /** Scans a header's full text. */
+    static HeaderDeclarations scan(String content) {
+        HeaderScanner s = new HeaderScanner(content, false);
+        s.lex();
+        s.parseTopLevel();
+        return s.out;
+    }
+
+    /** Only the #include "..." names of a file (no declaration parsing). */
+    static List<String> scanIncludes(String content) {
+        HeaderScanner s = new HeaderScanner(content, true);
+        s.lex();
+        return s.out.includes;
+    }
+
+    // ------------------------------------------------------------------ lexer
+
+    private void lex() {
+        while (pos < len) {
+            char c = src.charAt(pos);
+            if (c == '\n') { lineStart = true; pos++; continue; }
+            if (c == ' ' || c == '\t' || c == '\r' || c == '\f' || c == '\u000b') { pos++; continue; }
+            if (c == '\\' && pos + 1 < len && (src.charAt(pos + 1) == '\n' || src.charAt(pos + 1) == '\r')) {
+                pos++; // line continuation outside a directive
+                continue;
+            }
+            if (c == '/' && pos + 1 < len && src.charAt(pos + 1) == '*') { skipBlockComment(); continue; }
+            if (c == '/' && pos + 1 < len && src.charAt(pos + 1) == '/') { skipToLineEnd(); continue; }
+            if (c == '#' && lineStart) { directive(); continue; }
+            lineStart = false;
+
+            if (isIdentStart(c)) {
+                int start = pos;
+                while (pos < len && isIdentPart(src.charAt(pos))) pos++;
+                String word = src.substring(start, pos);
+                if (word.equals("__attribute__") || word.equals("__attribute")
+                        || word.equals("__declspec") || word.equals("__asm__") || word.equals("__asm")) {
+                    skipParenGroup();
+                    continue;
+                }
+                emit(IDENT, word);
+            } else if (isDigit(c) || (c == '.' && pos + 1 < len && isDigit(src.charAt(pos + 1)))) {
+                int start = pos;
+                while (pos < len) {
+                    char d = src.charAt(pos);
+                    if (isIdentPart(d) || d == '.') pos++;
+                    else if ((d == '+' || d == '-') && "eEpP".indexOf(src.charAt(pos - 1)) >= 0) pos++;
+                    else break;
+                }
+                emit(NUMBER, src.substring(start, pos));
+            } else if (c == '"' || c == '\'') {
+                int start = pos;
+                skipQuoted(c);
+                emit(STRING, src.substring(start, pos));
+            } else if (c == '.' && src.startsWith("...", pos)) {
+                pos += 3;
+                emit(PUNCT, "...");
+            } else {
+                pos++;
+                emit(PUNCT, String.valueOf(c));
+            }
+        }
+    }
+
+    private void emit(int kind, String text) {
+        trackEnum(kind, text);
+        if (includesOnly) return;
+        if (count == kinds.length) {
+            kinds = Arrays.copyOf(kinds, count * 2);
+            texts = Arrays.copyOf(texts, count * 2);
+        }
+        kinds[count] = kind;
+        texts[count] = text;
+        count++;
+    }
+
+    /** Enum constants, wherever an enum body appears: the first identifier of each enumerator. */
+    private void trackEnum(int kind, String text) {
+        if (enumState == 0) {
+            if (kind == IDENT && text.equals("enum")) enumState = 1;
+        } else if (enumState == 1) {
+            if (text.equals("{")) {
+                enumState = 2;
+                enumDepth = 0;
+                enumExpectName = true;
+            } else if (kind != IDENT) {
+                enumState = 0; // "enum tag x;" — no body
+            }
+        } else {
+            if (text.equals("(") || text.equals("{") || text.equals("[")) {
+                enumDepth++;
+            } else if (text.equals(")") || text.equals("]")) {
+                enumDepth--;
+            } else if (text.equals("}")) {
+                if (enumDepth == 0) enumState = 0;
+                else enumDepth--;
+            } else if (enumDepth == 0 && text.equals(",")) {
+                enumExpectName = true;
+            } else if (enumDepth == 0 && enumExpectName && kind == IDENT) {
+                out.macroNames.add(text);
+                enumExpectName = false;
+            }
+        }
+    }
+
+    private void skipBlockComment() {
+        int end = src.indexOf("*/", pos + 2);
+        pos = end < 0 ? len : end + 2;
+    }
+
+    private void skipToLineEnd() {
+        while (pos < len && src.charAt(pos) != '\n') pos++;
+    }
+
+    private void skipQuoted(char quote) {
+        pos++;
+        while (pos < len) {
+            char c = src.charAt(pos);
+            if (c == '\\') { pos += 2; continue; }
+            if (c == quote || c == '\n') { pos++; return; }
+            pos++;
+        }
+    }
+
+    /** Skips an optional balanced (...) group after the current position. */
+    private void skipParenGroup() {
+        int p = pos;
+        while (p < len && Character.isWhitespace(src.charAt(p))) p++;
+        if (p >= len || src.charAt(p) != '(') return;
+        int depth = 0;
+        while (p < len) {
+            char c = src.charAt(p++);
+            if (c == '(') depth++;
+            else if (c == ')' && --depth == 0) break;
+            else if (c == '"' || c == '\'') { pos = p - 1; skipQuoted(c); p = pos; }
+        }
+        pos = p;
+    }
+
+    /**
+     * Reads one preprocessor line (continuations joined, comments removed) and
+     * records #include "..." and object-like #define.
+     */
+    private void directive() {
+        pos++; // '#'
+        StringBuilder line = new StringBuilder();
+        while (pos < len) {
+            char c = src.charAt(pos);
+            if (c == '\n') break;
+            if (c == '\\' && pos + 1 < len && (src.charAt(pos + 1) == '\n' || src.charAt(pos + 1) == '\r')) {
+                pos += src.charAt(pos + 1) == '\r' && pos + 2 < len && src.charAt(pos + 2) == '\n' ? 3 : 2;
+                line.append(' ');
+                continue;
+            }
+            if (c == '/' && pos + 1 < len && src.charAt(pos + 1) == '*') {
+                skipBlockComment();
+                line.append(' ');
+                continue;
+            }
+            if (c == '/' && pos + 1 < len && src.charAt(pos + 1) == '/') { skipToLineEnd(); break; }
+            if (c == '"' || c == '\'') {
+                int start = pos;
+                skipQuoted(c);
+                line.append(src, start, pos);
+                continue;
+            }
+            line.append(c);
+            pos++;
+        }
+        lineStart = true;
+        handleDirective(line);
+    }
+
+    private void handleDirective(CharSequence line) {
+        int n = line.length();
+        int i = skipBlanks(line, 0);
+        int start = i;
+        while (i < n && isIdentPart(line.charAt(i))) i++;
+        String name = line.subSequence(start, i).toString();
+
+        if (name.equals("include")) {
+            i = skipBlanks(line, i);
+            if (i < n && line.charAt(i) == '"') {
+                int end = i + 1;
+                while (end < n && line.charAt(end) != '"') end++;
+                if (end < n) out.includes.add(line.subSequence(i + 1, end).toString());
+            }
+        } else if (name.equals("define") && !includesOnly) {
+            i = skipBlanks(line, i);
+            start = i;
+            if (i >= n || !isIdentStart(line.charAt(i))) return;
+            while (i < n && isIdentPart(line.charAt(i))) i++;
+            String macro = line.subSequence(start, i).toString();
+            // Function-like macros (#define FOO(x) ...) are intentionally skipped,
+            // as are valueless flags (#define __SDS_H)
+            if (i >= n || (line.charAt(i) != ' ' && line.charAt(i) != '\t')) return;
+            String value = line.subSequence(i, n).toString().trim();
+            if (value.isEmpty()) return;
+            Integer constant = parseIntegerConstant(value);
+            if (constant != null) out.defineConstants.put(macro, constant);
+            else out.macroNames.add(macro);
+        }
+    }
+
+    /**
+     * Integer value of a plain literal #define: -1, 42, 0000002 (kept as
+     * decimal), 0xFF. Anything else (expressions, strings, other macros) is null.
+     */
+    private static Integer parseIntegerConstant(String value) {
+        try {
+            if (value.length() > 1 && value.charAt(0) == '-' && allDigits(value, 1)) {
+                return Integer.parseInt(value);
+            }
+            if (allDigits(value, 0)) {
+                return (int) Long.parseUnsignedLong(value);
+            }
+            if (value.length() > 2 && value.charAt(0) == '0'
+                    && (value.charAt(1) == 'x' || value.charAt(1) == 'X') && allHexDigits(value, 2)) {
+                return (int) Long.parseUnsignedLong(value.substring(2), 16);
+            }
+        } catch (NumberFormatException e) {
+            // out of range — fall through to a name-only macro
+        }
+        return null;
+    }
+
+    private static boolean allDigits(String s, int from) {
+        if (from >= s.length()) return false;
+        for (int i = from; i < s.length(); i++) if (!isDigit(s.charAt(i))) return false;
+        return true;
+    }
+
+    private static boolean allHexDigits(String s, int from) {
+        for (int i = from; i < s.length(); i++) {
+            if (Character.digit(s.charAt(i), 16) < 0) return false;
+        }
+        return true;
+    }
+
+    private static int skipBlanks(CharSequence s, int i) {
+        while (i < s.length() && (s.charAt(i) == ' ' || s.charAt(i) == '\t')) i++;
+        return i;
+    }
+
+    private static boolean isIdentStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isIdentPart(char c) {
+        return isIdentStart(c) || isDigit(c);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // ------------------------------------------------------------------ declarations
+
+    private boolean is(int i, String text) {
+        return i < count && texts[i].equals(text);
+    }
+
+    private boolean isIdent(int i) {
+        return i < count && kinds[i] == IDENT;
+    }
+
+    /** Index of the bracket closing the one at open ('(' / '{' / '['), or count if unbalanced. */
+    private int matching(int open) {
+        String o = texts[open];
+        String c = o.equals("(") ? ")" : o.equals("{") ? "}" : "]";
+        int depth = 0;
+        for (int i = open; i < count; i++) {
+            if (kinds[i] != PUNCT) continue;
+            if (texts[i].equals(o)) depth++;
+            else if (texts[i].equals(c) && --depth == 0) return i;
+        }
+        return count;
+    }
+
+    private void parseTopLevel() {
+        int i = 0;
+        while (i < count) {
+            if (is(i, ";") || is(i, "}")) { i++; continue; } // stray ';' or end of extern "C" { }
+            if (is(i, "extern") && i + 1 < count && kinds[i + 1] == STRING) {
+                // linkage specification: extern "C" { ... } or extern "C" decl;
+                i += is(i + 2, "{") ? 3 : 2;
+                continue;
+            }
+            int start = i;
+            int parens = 0;
+            boolean done = false;
+            while (i < count && !done) {
+                String t = texts[i];
+                if (kinds[i] != PUNCT) { i++; continue; }
+                if (t.equals("(")) parens++;
+                else if (t.equals(")")) parens--;
+                else if (t.equals("{")) {
+                    if (parens == 0 && i > start && is(i - 1, ")")) {
+                        // function definition: register its prototype, skip the body
+                        declaration(start, i);
+                        i = matching(i) + 1;
+                        done = true;
+                        continue;
+                    }
+                    i = matching(i);
+                } else if (t.equals(";") && parens == 0) {
+                    declaration(start, i);
+                    done = true;
+                } else if (t.equals("}")) {
+                    done = true; // unbalanced — resynchronize at the brace
+                    continue;
+                }
+                i++;
+            }
+        }
+    }
+
+    /** One top-level declaration in tokens [from, to). */
+    private void declaration(int from, int to) {
+        if (from >= to) return;
+        if (is(from, "typedef")) {
+            typedefDeclaration(from + 1, to);
+            return;
+        }
+        boolean isExtern = is(from, "extern");
+        Specifier spec = specifier(from, to);
+        if (spec == null) return;
+        for (Declarator d : declarators(spec.end, to)) {
+            if (d.params != null) {
+                if (!spec.type.isEmpty()) {
+                    functionDeclaration(spec, d);
+                }
+            } else if (isExtern && d.name != null) {
+                out.externVariables.put(d.name, d.funcPtr ? "void*" : spec.type + stars(d.stars));
+            }
+        }
+    }
+
+    private void typedefDeclaration(int from, int to) {
+        Specifier spec = specifier(from, to);
+        if (spec == null) return;
+        for (Declarator d : declarators(spec.end, to)) {
+            if (d.name == null) continue;
+            String type;
+            if (d.funcPtr) {
+                type = "void*";                   // typedef void (*fn)(void*);
+            } else if (d.params != null) {
+                type = "function";                // typedef void proc(params);
+            } else if (spec.anonymousKeyword != null) {
+                // typedef struct { ... } name; — the struct takes the typedef's name
+                type = spec.anonymousKeyword + " " + d.name + stars(d.stars);
+                if (spec.anonymousStruct != null && !out.structs.containsKey(d.name)) {
+                    spec.anonymousStruct.name = d.name;
+                    out.structs.put(d.name, spec.anonymousStruct);
+                }
+            } else {
+                type = spec.type + stars(d.stars);
+            }
+            out.typedefs.put(d.name, type);
+        }
+    }
+
+    private void functionDeclaration(Specifier spec, Declarator d) {
+        List<String> paramTypes = new ArrayList<>();
+        int open = d.params, close = matching(open);
+        int i = open + 1;
+        while (i < close) {
+            int end = i;
+            for (int depth = 0; end < close; end++) {
+                if (texts[end].equals("(") || texts[end].equals("[")) depth++;
+                else if (texts[end].equals(")") || texts[end].equals("]")) depth--;
+                else if (depth == 0 && texts[end].equals(",")) break;
+            }
+            if (end > i) {
+                if (is(i, "...")) {
+                    paramTypes.add("...");
+                } else {
+                    Specifier ps = specifier(i, end);
+                    if (ps != null) {
+                        List<Declarator> pds = declarators(ps.end, end);
+                        Declarator pd = pds.isEmpty() ? null : pds.get(0);
+                        if (pd != null && pd.funcPtr) paramTypes.add("void*");
+                        else paramTypes.add(ps.type + stars(pd != null ? pd.stars : 0));
+                    }
+                }
+            }
+            i = end + 1;
+        }
+        // (void) means no parameters
+        if (paramTypes.size() == 1 && paramTypes.get(0).equals("void")) paramTypes.clear();
+
+        String returnType = spec.type + stars(d.stars);
+        out.functions.put(d.name, new CustomLibraryResolver.CustomFunction(d.name, returnType, paramTypes));
+    }
+
+    // Declaration specifiers: the base type text and where declarators start
+    private static final class Specifier {
+        String type;
+        int end;
+        String anonymousKeyword;                          // "struct" / "union" / "enum" without a tag
+        CustomLibraryResolver.CustomStruct anonymousStruct;
+    }
+
+    /**
+     * Parses declaration specifiers in [from, to): qualifiers, type keywords,
+     * one typedef name, or struct/union/enum (registering any struct body).
+     */
+    private Specifier specifier(int from, int to) {
+        Specifier spec = new Specifier();
+        StringBuilder type = new StringBuilder();
+        boolean seenBase = false;
+        int i = from;
+        while (i < to && kinds[i] == IDENT) {
+            String t = texts[i];
+            if (STORAGE.contains(t)) { i++; continue; }
+            if (TYPE_QUALIFIERS.contains(t) || TYPE_KEYWORDS.contains(t)) {
+                appendWord(type, t);
+                if (TYPE_KEYWORDS.contains(t)) seenBase = true;
+                i++;
+                continue;
+            }
+            if (t.equals("struct") || t.equals("union") || t.equals("enum")) {
+                i++;
+                String tag = isIdent(i) && i < to ? texts[i++] : null;
+                if (is(i, "{") && i < to) {
+                    int close = matching(i);
+                    if (t.equals("struct")) {
+                        CustomLibraryResolver.CustomStruct struct = structBody(i, close, tag);
+                        if (tag == null) spec.anonymousStruct = struct;
+                    }
+                    if (tag == null) spec.anonymousKeyword = t;
+                    i = close + 1;
+                }
+                appendWord(type, tag != null ? t + " " + tag : t);
+                seenBase = true;
+                continue;
+            }
+            if (seenBase) break;                      // declarator name
+            appendWord(type, t);                      // typedef name (list, sds, uint8_t)
+            seenBase = true;
+            i++;
+        }
+        if (!seenBase && type.length() == 0) return null;
+        spec.type = type.toString();
+        spec.end = i;
+        return spec;
+    }
+
+    private static void appendWord(StringBuilder sb, String word) {
+        if (sb.length() > 0) sb.append(' ');
+        sb.append(word);
+    }
+
+    private static String stars(int n) {
+        return n == 0 ? "" : "*".repeat(n);
+    }
+
+    // One declarator: pointer depth, name, and function parameter list if any
+    private static final class Declarator {
+        String name;
+        int stars;
+        boolean funcPtr;        // (*name)(...) or (*name)[...]
+        Integer params;         // index of '(' of a function declarator's parameter list
+    }
+
+    /** Comma-separated declarators in [from, to); initializers and bit-field widths are skipped. */
+    private List<Declarator> declarators(int from, int to) {
+        List<Declarator> result = new ArrayList<>(1);
+        int i = from;
+        while (i < to) {
+            Declarator d = new Declarator();
+            while (i < to && (is(i, "*") || (isIdent(i) && POINTER_QUALIFIERS.contains(texts[i])))) {
+                if (is(i, "*")) d.stars++;
+                i++;
+            }
+            if (is(i, "(") && is(i + 1, "*")) {
+                // function pointer / pointer to array: ( * [quals] name ) suffix
+                int close = matching(i);
+                for (int k = i + 1; k < close; k++) {
+                    if (isIdent(k) && !POINTER_QUALIFIERS.contains(texts[k])) { d.name = texts[k]; break; }
+                }
+                d.funcPtr = true;
+                i = close + 1;
+            } else if (isIdent(i) && i < to) {
+                d.name = texts[i++];
+            }
+            // suffixes: [dims], (params), : width, = initializer — up to the next top-level ','
+            while (i < to && !is(i, ",")) {
+                if (is(i, "[")) {
+                    i = matching(i) + 1;
+                } else if (is(i, "(")) {
+                    if (!d.funcPtr && d.params == null && d.name != null) d.params = i;
+                    i = matching(i) + 1;
+                } else if (is(i, "{")) {
+                    i = matching(i) + 1;
+                } else {
+                    i++;
+                }
+            }
+            if (d.name != null || d.stars > 0 || d.funcPtr) result.add(d);
+            i++; // ','
+        }
+        return result;
+    }
+
+    /** Parses a struct body { ... } and registers the struct if it has a tag. */
+    private CustomLibraryResolver.CustomStruct structBody(int open, int close, String tag) {
+        CustomLibraryResolver.CustomStruct struct = new CustomLibraryResolver.CustomStruct(tag);
+        int i = open + 1;
+        while (i < close) {
+            int end = i;
+            while (end < close && !is(end, ";")) {
+                if (is(end, "{") || is(end, "(") || is(end, "[")) end = matching(end);
+                end++;
+            }
+            field(struct, i, Math.min(end, close));
+            i = end + 1;
+        }
+        if (tag != null) out.structs.put(tag, struct);
+        return struct;
+    }
+
+    /** One field declaration in [from, to), possibly declaring several members. */
+    private void field(CustomLibraryResolver.CustomStruct struct, int from, int to) {
+        Specifier spec = specifier(from, to);
+        if (spec == null) return;
+        for (Declarator d : declarators(spec.end, to)) {
+            if (d.name == null || d.params != null) continue;
+            // Function pointer members are stored as void* for simplicity
+            struct.addField(d.name, d.funcPtr ? "void*" : spec.type + stars(d.stars));
+        }
+    }
+}
@@ -0,0 +1,207 @@
+import java.util.*;
+
+/**
+ * One natural loop of a CFG: the header, every node of the body (header
+ * included) and its place in the loop-nesting tree.
+ */
+class NaturalLoop {
+    final CFGNode header;
+    final BitSet members = new BitSet();        // node ids of the body
+    NaturalLoop parent;                          // innermost enclosing loop, or null
+    final List<NaturalLoop> children = new ArrayList<>();
+    int depth;                                   // 1 for outermost loops
+    boolean containsAllocation;                  // some body statement calls an allocator
+
+    NaturalLoop(CFGNode header) {
+        this.header = header;
+    }
+
+    boolean contains(CFGNode node) {
+        return members.get(node.id);
+    }
+
+    int size() {
+        return members.cardinality();
+    }
+
+    @Override
+    public String toString() {
+        return "loop@Node" + header.id + " (depth " + depth + ", " + size() + " nodes)";
+    }
+}
+
+/**
+ * LoopNest - natural loops of a ControlFlowGraph and their nesting.
+ *
+ * Back edges are the retreating edges of a DFS from ENTRY whose target
+ * dominates their source (for CFGBuilder's output: every while loop's
+ * body -> condition edge). Each back edge's natural loop is the set of nodes
+ * that reach its tail without passing through the header; back edges sharing a
+ * header form one loop. Loops are then nested by containment.
+ *
+ * Everything is linear in the size of the graph times the (small) nesting
+ * depth, cheap enough to run for every function.
+ */
+public class LoopNest {
+    private final List<NaturalLoop> loops = new ArrayList<>();     // ordered by header id
+    private final NaturalLoop[] innermost;                          // per node id, or null
+    private int maxDepth;
+    private int allocatingLoops;
+
+    private LoopNest(ControlFlowGraph cfg, Set<String> allocFunctions) {
+        int n = cfg.allNodes.size();
+        innermost = new NaturalLoop[n];
+        DominatorTree dom = cfg.dominatorTree();
+
+        // Natural loops, one per header
+        NaturalLoop[] byHeader = new NaturalLoop[n];
+        for (int[] edge : retreatingEdges(cfg)) {
+            CFGNode tail = cfg.allNodes.get(edge[0]);
+            CFGNode head = cfg.allNodes.get(edge[1]);
+            if (!dom.dominates(head, tail)) continue;   // irreducible — not a natural loop
+            NaturalLoop loop = byHeader[head.id];
+            if (loop == null) {
+                loop = byHeader[head.id] = new NaturalLoop(head);
+                loop.members.set(head.id);
+            }
+            collectBody(loop, tail);
+        }
+        for (NaturalLoop loop : byHeader) {
+            if (loop != null) loops.add(loop);
+        }
+
+        // Nesting: assign nodes from the largest loop to the smallest so each
+        // node ends up with its innermost loop; a loop's parent is whatever
+        // loop owned its header just before it was assigned
+        List<NaturalLoop> bySize = new ArrayList<>(loops);
+        bySize.sort((a, b) -> Integer.compare(b.size(), a.size()));
+        for (NaturalLoop loop : bySize) {
+            NaturalLoop parent = innermost[loop.header.id];
+            if (parent != null) {
+                loop.parent = parent;
+                parent.children.add(loop);
+            }
+            for (int v = loop.members.nextSetBit(0); v >= 0; v = loop.members.nextSetBit(v + 1)) {
+                innermost[v] = loop;
+            }
+        }
+        for (NaturalLoop loop : bySize) {
+            loop.depth = loop.parent == null ? 1 : loop.parent.depth + 1;
+            maxDepth = Math.max(maxDepth, loop.depth);
+        }
+
+        // Allocation calls: each node is inspected once and credited to its
+        // innermost loop and, through the parents, to every enclosing loop
+        for (CFGNode node : cfg.allNodes) {
+            NaturalLoop loop = innermost[node.id];
+            if (loop == null || !callsAny(node, allocFunctions)) continue;
+            for (; loop != null && !loop.containsAllocation; loop = loop.parent) {
+                loop.containsAllocation = true;
+            }
+        }
+        for (NaturalLoop loop : loops) {
+            if (loop.containsAllocation) allocatingLoops++;
+        }
+    }
+
+    /** Loop analysis using the builtin allocator family (malloc, zmalloc, sdsnew, ...). */
+    public static LoopNest analyze(ControlFlowGraph cfg) {
+        return new LoopNest(cfg, FunctionSummaries.ALLOC_FUNCTIONS);
+    }
+
+    public static LoopNest analyze(ControlFlowGraph cfg, Set<String> allocFunctions) {
+        return new LoopNest(cfg, allocFunctions);
+    }
+
+    // Retreating edges {tail, head} of an iterative DFS from ENTRY
+    private static List<int[]> retreatingEdges(ControlFlowGraph cfg) {
+        int n = cfg.allNodes.size();
+        List<int[]> result = new ArrayList<>();
+        byte[] state = new byte[n];                  // 0 new, 1 on stack, 2 done
+        int[] stack = new int[n];
+        int[] next = new int[n];
+        int top = 0;
+        stack[top++] = cfg.entry.id;
+        state[cfg.entry.id] = 1;
+        while (top > 0) {
+            int v = stack[top - 1];
+            List<CFGNode> succ = cfg.allNodes.get(v).successors;
+            if (next[v] < succ.size()) {
+                int w = succ.get(next[v]++).id;
+                if (state[w] == 0) {
+                    state[w] = 1;
+                    stack[top++] = w;
+                } else if (state[w] == 1) {
+                    result.add(new int[] { v, w });
+                }
+            } else {
+                state[v] = 2;
+                top--;
+            }
+        }
+        return result;
+    }
+
+    private static void collectBody(NaturalLoop loop, CFGNode tail) {
+        Deque<CFGNode> work = new ArrayDeque<>();
+        if (!loop.members.get(tail.id)) {
+            loop.members.set(tail.id);
+            work.push(tail);
+        }
+        while (!work.isEmpty()) {
+            for (CFGNode p : work.pop().predecessors) {
+                if (!loop.members.get(p.id)) {
+                    loop.members.set(p.id);
+                    work.push(p);
+                }
+            }
+        }
+    }
+
+    // The part of the AST a CFG node itself executes (not the nested branches)
+    private static ASTNode statementOf(ASTNode astNode) {
+        if (astNode instanceof IfStmtNode) return ((IfStmtNode) astNode).condition;
+        if (astNode instanceof WhileStmtNode) return ((WhileStmtNode) astNode).condition;
+        return astNode;
+    }
+
+    private static boolean callsAny(CFGNode node, Set<String> functions) {
+        boolean[] found = new boolean[1];
+        CompositeASTVisitor walker = new CompositeASTVisitor(new ASTVisitor() {
+            @Override
+            public void visit(FuncCallNode call) {
+                if (functions.contains(call.name)) found[0] = true;
+            }
+        });
+        if (node.statements != null) {
+            // basic block
+            for (ASTNode stmt : node.statements) walker.walk(statementOf(stmt));
+        } else {
+            walker.walk(statementOf(node.astNode));
+        }
+        return found[0];
+    }
+
+    // ------------------------------------------------------------------ queries
+
+    /** All loops, ordered by header node id. */
+    public List<NaturalLoop> getLoops() {
+        return Collections.unmodifiableList(loops);
+    }
+
+    /** Innermost loop containing node, or null. */
+    public NaturalLoop getLoopFor(CFGNode node) {
+        return innermost[node.id];
+    }
+
+    /** Loop depth of node: 0 outside any loop. */
+    public int getDepth(CFGNode node) {
+        NaturalLoop loop = innermost[node.id];
+        return loop == null ? 0 : loop.depth;
+    }
+
+    public int getLoopCount()        { return loops.size(); }
+    public int getMaxDepth()         { return maxDepth; }
+    /** Loops with an allocation call anywhere in their body (nested loops included). */
+    public int getAllocatingLoopCount() { return allocatingLoops; }
+}
@@ -1,5 +1,4 @@
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.*;
 
 public class Main 
@@ -14,8 +13,23 @@ public class Main
             System.out.println("  --cfg          Show CFG only");
             System.out.println("  --dep          Show dependency graph");
             System.out.println("  --all          Show everything (default)");
+            System.out.println("  --summary-cache=<file>  Function summary cache (default: " + FunctionSummaries.DEFAULT_CACHE_FILE + ")");
+            System.out.println("  --no-summary-cache      Do not read or write the function summary cache");
+            System.out.println("  --header-cache=<file>   Scanned header cache (default: " + HeaderCache.DEFAULT_CACHE_FILE + ")");
+            System.out.println("  --no-header-cache       Always re-scan custom headers");
+            System.out.println("  --no-png                Write CFG .dot files only, skip Graphviz rendering");
+            System.out.println("  --basic-blocks          Fold straight-line statement runs into one CFG node");
+            System.out.println("  --rules=<list>          Semantic rules to run, comma-separated (default: all)");
+            System.out.println("                          " + String.join(", ", SemanticRules.ALL));
+            System.out.println("  --stream-diagnostics    Print each diagnostic as it is found (not aggregated)");
+            System.out.println("  --diagnostics-jsonl=<file|->  Also write diagnostics as JSON lines, one per occurrence");
+            System.out.println("                          (with -, the lines are mixed into the report on stdout)");
+            System.out.println("  --metrics-jsonl=<file|->      Also write per-function complexity metrics as JSON lines");
+            System.out.println("                          (with -, the lines are mixed into the report on stdout)");
             System.out.println("\nFolder mode: pass a directory to generate a combined dependency graph");
             System.out.println("  for all .c files in that directory.");
+            System.out.println("  --batch        Instead, fully analyze every .c file in the directory in one");
+            System.out.println("                 process, sharing parsed headers between files");
             return;
         }
         
@@ -23,17 +37,69 @@ public class Main
 
         // ----- Folder-wide dependency analysis -----
         java.io.File inputFile = new java.io.File(filename);
-        if (inputFile.isDirectory()) {
+        boolean batch = inputFile.isDirectory() && hasFlag(args, "--batch");
+        if (inputFile.isDirectory() && !batch) {
             analyzeDirectory(inputFile, args);
             return;
         }
 
+        Set<String> rules;
+        try {
+            rules = SemanticRules.parse(getOption(args, "--rules=", "all"));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return;
+        }
+        
+        String headerCacheFile = hasFlag(args, "--no-header-cache") ? null
+                : getOption(args, "--header-cache=", HeaderCache.DEFAULT_CACHE_FILE);
+        HeaderCache headerCache = headerCacheFile != null ? HeaderCache.load(headerCacheFile)
+                : batch ? new HeaderCache() : null;   // batch always shares headers in memory
+
+        DotRenderer renderer = hasFlag(args, "--no-png") ? null : new DotRenderer();
+
+        // Opened once per run, so every file of a batch appends to the same streams
+        boolean ok;
+        try (java.io.Writer diagnosticsOut = openJsonLines(getOption(args, "--diagnostics-jsonl=", null));
+             java.io.Writer metricsOut = openJsonLines(getOption(args, "--metrics-jsonl=", null))) {
+            ok = batch ? analyzeBatch(inputFile, args, rules, headerCache, renderer, diagnosticsOut, metricsOut)
+                       : analyzeFile(filename, args, rules, headerCache, renderer, diagnosticsOut, metricsOut);
+        } catch (IOException e) {
+            System.err.println("Error: Could not write JSON lines output: " + e.getMessage());
+            ok = false;
+        } finally {
+            // Queued renders are waited for and reported even if the analysis throws
+            if (renderer != null) {
+                renderer.finish();
+            }
+        }
+        if (headerCacheFile != null) {
+            headerCache.save(headerCacheFile);
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs the full pipeline (headers, lexing, parsing, dependency graph, AST,
+     * semantic analysis, CFG) for one source file.
+     * @param headerCache shared header model, or null to scan headers directly
+     * @param renderer    background PNG renderer for the CFG DOT files, or null for none
+     * @param diagnosticsOut  JSON-lines diagnostics sink shared by the run, or null
+     * @param metricsOut      JSON-lines complexity metrics sink shared by the run, or null
+     * @return false if the analysis failed
+     */
+    private static boolean analyzeFile(String filename, String[] args, Set<String> rules,
+                                       HeaderCache headerCache, DotRenderer renderer,
+                                       java.io.Writer diagnosticsOut, java.io.Writer metricsOut)
+    {
         boolean showAst = hasFlag(args, "--ast");
         boolean showSemantic = hasFlag(args, "--semantic");
         boolean showCfg = hasFlag(args, "--cfg");
         boolean showDep = hasFlag(args, "--dep");
         boolean showAll = hasFlag(args, "--all") || (!showAst && !showSemantic && !showCfg && !showDep);
-        
+
         try 
         {
             // Extract external types from preprocessed file (old-style preprocessed files)
@@ -61,6 +127,9 @@ public class Main
                 }
             }
 
+            // Unchanged headers come from the shared header model instead of being re-scanned
+            customResolver.setHeaderCache(headerCache);
+
             List<String> customIncludes = customResolver.extractCustomIncludes(filename);
             for (String header : customIncludes) {
                 customResolver.parseHeaderFile(header);
@@ -69,8 +138,7 @@ public class Main
             externalTypes.addAll(customResolver.getTypedefNames());
             externalTypes.addAll(customResolver.getStructNames());
             // Also register standard library typedefs (int64_t, size_t, etc.)
-            StandardLibrary stdLib = new StandardLibrary();
-            externalTypes.addAll(stdLib.getTypedefNames());
+            externalTypes.addAll(StandardLibrary.standardTypedefNames());
             if (!externalTypes.isEmpty()) {
                 System.out.println("Known types (incl. headers): " + externalTypes);
             }
@@ -137,8 +205,33 @@ public class Main
                 
                 SemanticAnalyzer analyzer = new SemanticAnalyzer();
                 analyzer.setCustomLibraryResolver(customResolver);
+
+                // Interprocedural function summaries (memory rule only): reuse those cached
+                // from other files, recompute the ones defined in this file, and persist the union.
+                if (rules.contains(SemanticRules.MEMORY)) {
+                    String summaryCache = hasFlag(args, "--no-summary-cache") ? null
+                            : getOption(args, "--summary-cache=", FunctionSummaries.DEFAULT_CACHE_FILE);
+                    FunctionSummaries summaries = summaryCache != null
+                            ? FunctionSummaries.load(summaryCache) : new FunctionSummaries();
+                    summaries.summarizeProgram(tree, filename);
+                    if (summaryCache != null) {
+                        summaries.save(summaryCache);
+                    }
+                    analyzer.setFunctionSummaries(summaries);
+                }
+                analyzer.setEnabledRules(rules);
+
+                boolean streamDiagnostics = hasFlag(args, "--stream-diagnostics");
+                if (streamDiagnostics) {
+                    System.out.println("\nDiagnostics:");
+                    analyzer.addDiagnosticListener(new ConsoleDiagnosticListener(System.out));
+                }
+                if (diagnosticsOut != null) {
+                    analyzer.addDiagnosticListener(new JsonLinesDiagnosticListener(diagnosticsOut, filename, false));
+                }
+
                 analyzer.analyze(tree);
-                analyzer.printResults();
+                analyzer.printResults(!streamDiagnostics);
                 
                 hasSemanticErrors = analyzer.hasErrors();
             }
@@ -149,17 +242,24 @@ public class Main
                 System.out.println("  CONTROL FLOW GRAPH ANALYSIS");
                 System.out.println("=".repeat(60));
                 
-                List<ControlFlowGraph> cfgs = CFGBuilder.buildCFGsFromProgram(tree);
+                // Graphs and metrics are built in parallel; text and DOT files are written here, in source order
+                List<CFGResult> cfgs = CFGBuilder.buildAndMeasure(tree, hasFlag(args, "--basic-blocks"), true);
                 
-                for (ControlFlowGraph cfg : cfgs) {
-                    cfg.printCFG();
+                for (CFGResult result : cfgs) {
+                    ControlFlowGraph cfg = result.cfg;
+                    System.out.print(result.text);
+                    System.out.println("Loops: " + result.loopCount + " (max depth " + result.maxLoopDepth
+                            + ", " + result.allocatingLoops + " with allocation calls)");
 
                     String dotFilename = "cfg_" + cfg.functionName + ".dot";
                     String pngFilename = "cfg_" + cfg.functionName + ".png";
+                    if (renderer != null) {
+                        renderer.awaitFile(dotFilename);   // same function name in an earlier file
+                    }
                     
-                    try (PrintWriter writer = new PrintWriter(dotFilename)) 
+                    try (java.io.Writer writer = java.nio.file.Files.newBufferedWriter(java.nio.file.Paths.get(dotFilename))) 
                     {
-                        writer.print(cfg.toDot());
+                        cfg.writeDot(writer);
                         System.out.println("Generated: " + dotFilename);
                     } 
                     catch (IOException e) 
@@ -167,20 +267,10 @@ public class Main
                         System.err.println("Error writing " + dotFilename + ": " + e.getMessage());
                     }
                     
-                    // Generate PNG from DOT file
-                    try {
-                        ProcessBuilder pb = new ProcessBuilder("dot", "-Tpng", dotFilename, "-o", pngFilename);
-                        Process process = pb.start();
-                        int exitCode = process.waitFor();
-                        if (exitCode == 0) {
-                            System.out.println("Generated: " + pngFilename);
-                        } else {
-                            System.err.println("Warning: Failed to generate " + pngFilename + " (exit code: " + exitCode + ")");
-                        }
-                    } catch (IOException | InterruptedException e) {
-                        System.err.println("Warning: Could not generate PNG (is Graphviz installed?): " + e.getMessage());
+                    // PNG rendering runs in the background; outcomes are reported at the end
+                    if (renderer != null) {
+                        renderer.submit(dotFilename, pngFilename);
                     }
-
                 }
 
                 
@@ -189,17 +279,23 @@ public class Main
                 System.out.println("\n" + "=".repeat(60));
                 System.out.println("  CYCLOMATIC COMPLEXITY SUMMARY");
                 System.out.println("=".repeat(60));
-                System.out.println(String.format("%-30s | %-12s | %s", "Function", "Complexity", "Risk Level"));
-                System.out.println("-".repeat(60));
+                // Complexity must stay the first numeric column (the UI parses "name | N |")
+                System.out.println(String.format("%-30s | %-12s | %-9s | %-12s | %-7s | %s",
+                        "Function", "Complexity", "Essential", "NPath", "Nesting", "Risk Level"));
+                System.out.println("-".repeat(100));
                 
-                for (ControlFlowGraph cfg : cfgs) {
-                    int complexity = cfg.calculateCyclomaticComplexity();
-                    String risk = getRiskLevel(complexity);
-                    System.out.println(String.format("%-30s | %-12d | %s", 
-                        cfg.functionName, complexity, risk));
+                for (CFGResult result : cfgs) {
+                    String risk = getRiskLevel(result.complexity);
+                    System.out.println(String.format("%-30s | %-12d | %-9d | %-12s | %-7d | %s", 
+                        result.cfg.functionName, result.complexity, result.essentialComplexity,
+                        formatNpath(result.npath), result.maxNesting, risk));
                 }
                 
                 System.out.println("\n✓ Total functions analyzed: " + cfgs.size());
+
+                if (metricsOut != null) {
+                    writeMetrics(metricsOut, filename, cfgs);
+                }
             }
             
             System.out.println("\n" + "=".repeat(60));
@@ -209,7 +305,7 @@ public class Main
                 System.out.println("✓ Analysis complete - No critical errors found");
             }
             System.out.println("=".repeat(60));
-            
+            return true;
         } 
         catch (Exception e) 
         {
@@ -218,7 +314,7 @@ public class Main
             if (hasFlag(args, "--debug")) {
                 e.printStackTrace();
             }
-            System.exit(1);
+            return false;
         }
     }
     
@@ -271,6 +367,60 @@ public class Main
         System.out.println("=".repeat(60));
     }
 
+    /**
+     * In-process batch mode: the full per-file analysis for every .c file found
+     * (non-recursively) in the directory. All files share one header model, so
+     * each header is scanned (or validated against the cache) once per batch;
+     * used-symbol state stays in each file's own resolver.
+     * @return false if any file failed
+     */
+    private static boolean analyzeBatch(java.io.File dir, String[] args, Set<String> rules,
+                                        HeaderCache headerCache, DotRenderer renderer,
+                                        java.io.Writer diagnosticsOut, java.io.Writer metricsOut) {
+        java.io.File[] cFiles = dir.listFiles(f -> f.isFile() && f.getName().endsWith(".c"));
+        if (cFiles == null || cFiles.length == 0) {
+            System.out.println("  No .c files found in directory.");
+            return true;
+        }
+
+        Arrays.sort(cFiles);   // deterministic order
+
+        int failed = 0;
+        for (java.io.File f : cFiles) {
+            System.out.println("\n" + "#".repeat(60));
+            System.out.println("  FILE: " + f.getPath());
+            System.out.println("#".repeat(60));
+            if (!analyzeFile(f.getPath(), args, rules, headerCache, renderer, diagnosticsOut, metricsOut)) {
+                failed++;
+            }
+        }
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("  BATCH SUMMARY");
+        System.out.println("=".repeat(60));
+        System.out.println(String.format("  %-20s %d", "Files analyzed:", cFiles.length));
+        System.out.println(String.format("  %-20s %d", "Failed:", failed));
+        System.out.println(String.format("  %-20s %d scanned, %d reused",
+                "Headers:", headerCache.getMissCount(), headerCache.getHitCount()));
+        System.out.println("=".repeat(60));
+        return failed == 0;
+    }
+
+    /**
+     * JSON-lines sink for path: a file, "-" for stdout (closing it only
+     * flushes), or null for none.
+     */
+    private static java.io.Writer openJsonLines(String path) throws IOException {
+        if (path == null) return null;
+        if (!path.equals("-")) return java.nio.file.Files.newBufferedWriter(java.nio.file.Paths.get(path));
+        return new java.io.FilterWriter(new java.io.OutputStreamWriter(System.out, java.nio.charset.StandardCharsets.UTF_8)) {
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+
     private static boolean hasFlag(String[] args, String flag) {
         for (String arg : args) {
             if (arg.equals(flag)) return true;
@@ -278,6 +428,14 @@ public class Main
         return false;
     }
 
+    /** Value of a "--name=value" option, or defaultValue if absent. */
+    private static String getOption(String[] args, String prefix, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) return arg.substring(prefix.length());
+        }
+        return defaultValue;
+    }
+
     /**
      * Extract typedef names from preprocessed file that come from header files.
      * Looks for typedef declarations before the "Source Code" marker.
@@ -382,6 +540,42 @@ public class Main
         }
     }
     
+    private static String formatNpath(long npath) {
+        return npath == Long.MAX_VALUE ? "overflow" : Long.toString(npath);
+    }
+
+    /**
+     * Writes one JSON object per function:
+     * {"file":"x.c","function":"f","complexity":4,"essential":2,"npath":6,"npathSaturated":false,
+     *  "maxNesting":2,"decisionPoints":4,"nodes":9,"edges":11,"loops":1,"risk":"Low (Simple)"}
+     * out is shared by every file of the run and only flushed here.
+     */
+    private static void writeMetrics(java.io.Writer out, String filename, List<CFGResult> cfgs) {
+        try {
+            for (CFGResult r : cfgs) {
+                StringBuilder sb = new StringBuilder(200);
+                sb.append("{\"file\":");
+                JsonLinesDiagnosticListener.appendJsonString(sb, filename);
+                sb.append(",\"function\":");
+                JsonLinesDiagnosticListener.appendJsonString(sb, r.cfg.functionName);
+                sb.append(",\"complexity\":").append(r.complexity)
+                  .append(",\"essential\":").append(r.essentialComplexity)
+                  .append(",\"npath\":").append(r.npath)
+                  .append(",\"npathSaturated\":").append(r.npath == Long.MAX_VALUE)
+                  .append(",\"maxNesting\":").append(r.maxNesting)
+                  .append(",\"decisionPoints\":").append(r.decisionPoints)
+                  .append(",\"nodes\":").append(r.nodeCount)
+                  .append(",\"edges\":").append(r.edgeCount)
+                  .append(",\"loops\":").append(r.loopCount)
+                  .append(",\"risk\":\"").append(getRiskLevel(r.complexity)).append("\"}\n");
+                out.write(sb.toString());
+            }
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Warning: could not write metrics: " + e.getMessage());
+        }
+    }
+
     private static String getRiskLevel(int complexity) {
         if (complexity <= 5) return "Low (Simple)";
         if (complexity <= 10) return "Moderate";
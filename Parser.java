@@ -200,7 +200,9 @@ public class Parser
         
         if (check("LPAR")) {
             List<ASTNode> list = new ArrayList<>();
-            list.add(parseFuncDecl(type, nameTk.value.toString()));
+            FuncDeclNode func = (FuncDeclNode) parseFuncDecl(type, nameTk.value.toString());
+            func.isStatic = isStatic;
+            list.add(func);
             return list;
         } 
         else {
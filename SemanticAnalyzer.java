@@ -1,82 +1,106 @@
 import java.util.*;
 
-// Semantic Error representation
-class SemanticError {
-    String message;
-    String severity; // "error", "warning"
-    int line;
-    
-    public SemanticError(String message, String severity) {
-        this.message = message;
-        this.severity = severity;
-        this.line = 0;
-    }
-    
-    @Override
-    public String toString() {
-        return String.format("[%s] %s", severity.toUpperCase(), message);
-    }
-}
-
-// Semantic Analyzer - performs type checking and semantic validation
+// Semantic Analyzer - performs type checking and semantic validation.
+//
+// The analyzer owns a single shared traversal (declarations, scopes, statement
+// and expression walk). The individual checks — type compatibility, condition
+// types, undeclared identifiers, memory safety — are SemanticCheck visitors
+// registered per rule (see SemanticRules); disabled rules are never
+// instantiated, so e.g. a memory-only run does no type inference at all.
 public class SemanticAnalyzer {
     private SymbolTable symbolTable;
     private AliasTable aliasTable;
-    private List<SemanticError> errors;
-    private List<SemanticError> warnings;
+    private DiagnosticSink diagnostics;
+    // Streaming consumers notified of each diagnostic as it is reported
+    private List<DiagnosticListener> listeners;
     private String currentFunction;
     private Map<String, StructDeclNode> structDefinitions;
     private StandardLibrary standardLibrary;
     private CustomLibraryResolver customResolver;
-    // Heap-allocated pointers in the current function scope (for leak detection)
-    private Set<String> functionLocalHeap = new HashSet<>();
     // Depth of conditional/loop nesting — free() inside a branch must not mark
     // a pointer as unconditionally freed (avoids false double-free reports).
     private int conditionalDepth = 0;
 
-    private static final Set<String> ALLOC_FUNCTIONS = new HashSet<>(Arrays.asList(
-        "malloc", "calloc", "realloc",
-        "zmalloc", "zcalloc", "zrealloc", "zmalloc_no_tcache", "ztry_malloc",
-        "zstrdup", "zstrndup",
-        "sdsnew", "sdsnewlen", "sdsempty", "sdsdup", "sdsMakeRoomFor", "sdsRemoveFreeSpace",
-        "listCreate", "dictCreate", "raxNew", "ziplistNew", "listpackNew"
-    ));
-    private static final Set<String> FREE_FUNCTIONS = new HashSet<>(Arrays.asList(
-        "free", "zfree", "zfree_no_tcache",
-        "sdsfree", "sdsfreegeneric",
-        "listRelease", "dictRelease", "raxFree"
-    ));
+    // Interprocedural ownership summaries (alloc / free / store behaviour of callees)
+    private FunctionSummaries summaries;
+
+    // Memoized expression types (identity-keyed; nodes are typed once per analysis)
+    private final Map<ASTNode, String> nodeTypes = new IdentityHashMap<>();
+    private final Map<String, String> typeNames = new HashMap<>();
+
+    // Enabled rule names and the checks instantiated for them
+    private Set<String> enabledRules;
+    private List<SemanticCheck> checks;
+    // Checks that want a callback for every expression node
+    private List<SemanticCheck> expressionChecks;
 
-    private boolean isAllocFunction(String name) { return ALLOC_FUNCTIONS.contains(name); }
-    private boolean isFreeFunction(String name)  { return FREE_FUNCTIONS.contains(name); }
-    
     public SemanticAnalyzer() {
         this.symbolTable = new SymbolTable();
         this.aliasTable = new AliasTable();
-        this.errors = new ArrayList<>();
-        this.warnings = new ArrayList<>();
+        this.diagnostics = new DiagnosticSink();
+        this.listeners = new ArrayList<>();
         this.currentFunction = null;
         this.structDefinitions = new HashMap<>();
         this.standardLibrary = new StandardLibrary();
         this.customResolver = null;
+        this.summaries = null;
+        this.enabledRules = new LinkedHashSet<>(SemanticRules.ALL);
+    }
+    
+    /**
+     * Use precomputed (possibly cache-loaded) function summaries. When none are
+     * set, analyze() summarizes the program on its own.
+     */
+    public void setFunctionSummaries(FunctionSummaries summaries) {
+        this.summaries = summaries;
     }
     
     public void setCustomLibraryResolver(CustomLibraryResolver resolver) {
         this.customResolver = resolver;
     }
+
+    /** Stream diagnostics to the listener as they are produced (in addition to the counting sink). */
+    public void addDiagnosticListener(DiagnosticListener listener) {
+        listeners.add(listener);
+    }
+
+    /** Restrict analysis to the given rules (see SemanticRules). Default: all rules. */
+    public void setEnabledRules(Set<String> rules) {
+        this.enabledRules = new LinkedHashSet<>(rules);
+    }
+
+    public Set<String> getEnabledRules() {
+        return enabledRules;
+    }
     
     public void analyze(ProgramNode program) {
-        // Pre-pass: scan for standard library usage and register only used symbols
-        standardLibrary.scanForUsedSymbols(program);
-        standardLibrary.registerUsedSymbols(symbolTable);
-        
-        // Pre-pass: register custom library symbols (from parsed headers)
-        if (customResolver != null) {
-            customResolver.scanForUsedSymbols(program);
-            customResolver.registerUsedSymbols(symbolTable);
-            customResolver.registerConstants(symbolTable);
-            customResolver.registerExternVariables(symbolTable);
+        try {
+            runPasses(program);
+        } finally {
+            // Listeners flush their sinks even if the analysis fails
+            for (DiagnosticListener listener : listeners) listener.finish();
         }
+    }
+
+    private void runPasses(ProgramNode program) {
+        nodeTypes.clear();
+        checks = SemanticRules.createChecks(enabledRules, this);
+        expressionChecks = new ArrayList<>();
+        for (SemanticCheck check : checks) {
+            if (check.visitsExpressions()) expressionChecks.add(check);
+        }
+
+        if (summaries == null && enabledRules.contains(SemanticRules.MEMORY)) {
+            summaries = new FunctionSummaries();
+            summaries.summarizeProgram(program, null);
+        }
+
+        // Library and header symbols are resolved lazily: a lookup that misses every
+        // scope falls back to these providers (header declarations override the
+        // standard library; header constants and externs come last)
+        if (customResolver != null) symbolTable.addProvider(customResolver);
+        symbolTable.addProvider(standardLibrary);
+        if (customResolver != null) symbolTable.addProvider(customResolver.constantProvider());
         
         // First pass: collect all declarations (functions, typedefs, global vars, structs)
         for (ASTNode node : program.declarations) {
@@ -101,9 +125,10 @@ public class SemanticAnalyzer {
     
     private void analyzeStructDeclaration(StructDeclNode node) {
         if (structDefinitions.containsKey(node.name)) {
-            addError("Struct '" + node.name + "' already declared");
+            report(DiagnosticKind.STRUCT_REDECLARED, node.name);
             return;
         }
+        node.indexFields();
         structDefinitions.put(node.name, node);
     }
     
@@ -136,44 +161,23 @@ public class SemanticAnalyzer {
         
         symbolTable.addSymbol(node.name, node.type, "variable");
         
-        // Track pointers
-        if (node.type.contains("*")) {
-            aliasTable.addPointer(node.name, 0);
-            if (node.type.startsWith("void")) {
-                aliasTable.markVoidPointer(node.name);
-            }
-        }
-        
-        // Check initialization
-        if (node.initExpr != null) {
-            String exprType = inferType(node.initExpr);
-            if (!isTypeCompatible(node.type, exprType)) {
-                addError("Type mismatch in initialization of '" + node.name + 
-                        "': expected " + node.type + " but got " + exprType);
-            }
-        }
+        for (SemanticCheck check : checks) check.visitGlobalVariable(node);
+        visitExpression(node.initExpr);
     }
     
     private void analyzeFunctionBody(FuncDeclNode node) {
         currentFunction = node.name;
-        aliasTable.resetForNewFunction(); // clear per-pointer state from previous function
+        for (SemanticCheck check : checks) check.enterFunction(node);
         symbolTable.enterScope();
         try {
             // Add parameters to scope
             for (VarDeclNode param : node.args) {
                 if (param.name.equals("...")) continue; // skip variadic sentinel
                 if (symbolTable.lookupInCurrentScope(param.name) != null) {
-                    addError("Parameter '" + param.name + "' already declared");
+                    report(DiagnosticKind.PARAM_REDECLARED, param.name);
                 } else {
                     symbolTable.addSymbol(param.name, param.type, "parameter");
-
-                    // Track pointer parameters
-                    if (param.type.contains("*")) {
-                        aliasTable.addPointer(param.name, symbolTable.getCurrentLevel());
-                        if (param.type.startsWith("void")) {
-                            aliasTable.markVoidPointer(param.name);
-                        }
-                    }
+                    for (SemanticCheck check : checks) check.visitParameter(param);
                 }
             }
 
@@ -182,12 +186,7 @@ public class SemanticAnalyzer {
                 analyzeStatement(node.body, node.retType);
             }
         } finally {
-            // Memory leak check: any heap-allocated pointers not freed before function exit
-            for (String ptr : functionLocalHeap) {
-                addWarning("Memory leak: '" + ptr + "' allocated but never freed in '" + currentFunction + "'");
-                aliasTable.recordLeak(ptr + " in " + currentFunction);
-            }
-            functionLocalHeap.clear();
+            for (SemanticCheck check : checks) check.exitFunction(node);
             conditionalDepth = 0; // safety reset between functions
             // Always exit scope, even if analysis throws — prevents scope level leak
             // that would cause parameter names to persist into the next function's scope.
@@ -215,55 +214,20 @@ public class SemanticAnalyzer {
                 // branches of an #ifdef appear in the same scope. Only report an error
                 // if the type actually differs (a genuine re-declaration conflict).
                 if (!existingSymbol.type.equals(varDecl.type)) {
-                    addError("Variable '" + varDecl.name + "' already declared in this scope");
+                    report(DiagnosticKind.VAR_REDECLARED, varDecl.name);
                 }
                 // else: silently skip same-type re-declaration (likely from #if/#else)
             } else {
                 symbolTable.addSymbol(varDecl.name, varDecl.type, "variable");
-                
-                // Track pointers
-                if (varDecl.type.contains("*")) {
-                    aliasTable.addPointer(varDecl.name, symbolTable.getCurrentLevel());
-                    if (varDecl.type.startsWith("void")) {
-                        aliasTable.markVoidPointer(varDecl.name);
-                    }
-                }
-                
-                // Check initialization
-                if (varDecl.initExpr != null) {
-                    // int *p = malloc(...) — mark as heap-allocated
-                    if (varDecl.initExpr instanceof FuncCallNode) {
-                        String callee = ((FuncCallNode) varDecl.initExpr).name;
-                        if (isAllocFunction(callee) && varDecl.type.contains("*")) {
-                            aliasTable.markHeapAllocated(varDecl.name, symbolTable.getCurrentLevel());
-                            functionLocalHeap.add(varDecl.name);
-                        }
-                    }
-                    // int *q = p — ownership transfer if p was heap-allocated
-                    if (varDecl.initExpr instanceof IdNode && varDecl.type.contains("*")) {
-                        String sourcePtr = ((IdNode) varDecl.initExpr).name;
-                        if (functionLocalHeap.contains(sourcePtr)) {
-                            functionLocalHeap.remove(sourcePtr);
-                            functionLocalHeap.add(varDecl.name);
-                            aliasTable.markHeapAllocated(varDecl.name, symbolTable.getCurrentLevel());
-                        }
-                    }
-                    String exprType = inferType(varDecl.initExpr);
-                    if (!isTypeCompatible(varDecl.type, exprType)) {
-                        addError("Type mismatch in initialization of '" + varDecl.name + 
-                                "': expected " + varDecl.type + " but got " + exprType);
-                    }
-                }
+                for (SemanticCheck check : checks) check.visitLocalVariable(varDecl);
+                visitExpression(varDecl.initExpr);
             }
         }
         else if (node instanceof IfStmtNode) {
             IfStmtNode ifStmt = (IfStmtNode) node;
             
-            String condType = inferType(ifStmt.condition);
-            // In C, any pointer/integer/numeric type is a valid condition (if (ptr) is legal)
-            if (!isNumericOrPointerType(condType)) {
-                addWarning("Condition should be boolean or integer type, got: " + condType);
-            }
+            for (SemanticCheck check : checks) check.visitCondition(ifStmt.condition, false);
+            visitExpression(ifStmt.condition);
             
             symbolTable.enterScope();
             conditionalDepth++;
@@ -280,11 +244,8 @@ public class SemanticAnalyzer {
         else if (node instanceof WhileStmtNode) {
             WhileStmtNode whileStmt = (WhileStmtNode) node;
             
-            String condType = inferType(whileStmt.condition);
-            // In C, any pointer/integer/numeric type is a valid loop condition
-            if (!isNumericOrPointerType(condType)) {
-                addWarning("Loop condition should be boolean or integer type, got: " + condType);
-            }
+            for (SemanticCheck check : checks) check.visitCondition(whileStmt.condition, true);
+            visitExpression(whileStmt.condition);
             
             symbolTable.enterScope();
             conditionalDepth++;
@@ -293,32 +254,13 @@ public class SemanticAnalyzer {
         }
         else if (node instanceof ReturnStmtNode) {
             ReturnStmtNode retStmt = (ReturnStmtNode) node;
-            
-            if (retStmt.expr != null) {
-                // Returning a heap pointer transfers ownership to the caller — not a leak
-                if (retStmt.expr instanceof IdNode) {
-                    functionLocalHeap.remove(((IdNode) retStmt.expr).name);
-                }
-                String returnType = inferType(retStmt.expr);
-                if (!isTypeCompatible(expectedReturnType, returnType)) {
-                    addError("Return type mismatch in function '" + currentFunction + 
-                            "': expected " + expectedReturnType + " but got " + returnType);
-                }
-            } else if (!expectedReturnType.equals("void")) {
-                addError("Function '" + currentFunction + "' should return " + expectedReturnType);
-            }
-        }
-        else if (node instanceof BinaryExprNode) {
-            BinaryExprNode binExpr = (BinaryExprNode) node;
-            analyzeBinaryExpression(binExpr);
+            for (SemanticCheck check : checks) check.visitReturn(retStmt, expectedReturnType);
+            visitExpression(retStmt.expr);
         }
-        else if (node instanceof UnaryExprNode) {
-            UnaryExprNode unaryExpr = (UnaryExprNode) node;
-            analyzeUnaryExpression(unaryExpr);
-        }
-        else if (node instanceof FuncCallNode) {
-            FuncCallNode funcCall = (FuncCallNode) node;
-            analyzeFunctionCall(funcCall);
+        else if (node instanceof BinaryExprNode || node instanceof UnaryExprNode
+                || node instanceof FuncCallNode) {
+            for (SemanticCheck check : checks) check.visitExpressionStatement(node);
+            visitExpression(node);
         }
         else if (node instanceof TernaryExprNode) {
             TernaryExprNode ternary = (TernaryExprNode) node;
@@ -327,195 +269,68 @@ public class SemanticAnalyzer {
             analyzeStatement(ternary.elseExpr, expectedReturnType);
         }
     }
-    
-    private void analyzeBinaryExpression(BinaryExprNode node) {
-        String leftType = inferType(node.left);
-        String rightType = inferType(node.right);
-        
-        // Assignment operator - check for pointer aliasing
-        if (node.operator.equals("=")) {
-            // struct->field = ptr  or  struct.field = ptr
-            // — pointer is being stored into a data structure; ownership transfers out.
-            if ((node.left instanceof BinaryExprNode) && node.right instanceof IdNode) {
-                BinaryExprNode lhs = (BinaryExprNode) node.left;
-                if (lhs.operator.equals("->") || lhs.operator.equals(".")) {
-                    functionLocalHeap.remove(((IdNode) node.right).name);
-                }
-            }
-            if (node.left instanceof IdNode) {
-                String varName = ((IdNode) node.left).name;
-                Symbol symbol = symbolTable.lookup(varName);
-                
-                if (symbol != null && symbol.isPointer) {
-                    // p = malloc(...) — heap allocation
-                    if (node.right instanceof FuncCallNode) {
-                        String callee = ((FuncCallNode) node.right).name;
-                        if (isAllocFunction(callee)) {
-                            // Only track locals; globals are intentionally long-lived
-                            Symbol sym = symbolTable.lookup(varName);
-                            if (sym != null && sym.scopeLevel > 0) {
-                                aliasTable.markHeapAllocated(varName, symbolTable.getCurrentLevel());
-                                functionLocalHeap.add(varName);
-                            }
-                        }
-                    }
-                    // Track pointer assignment
-                    if (node.right instanceof UnaryExprNode) {
-                        UnaryExprNode unary = (UnaryExprNode) node.right;
-                        if (unary.operator.equals("&") && unary.expr instanceof IdNode) {
-                            String targetVar = ((IdNode) unary.expr).name;
-                            aliasTable.addAlias(varName, targetVar);
-                        }
-                    } else if (node.right instanceof IdNode) {
-                        String sourcePtr = ((IdNode) node.right).name;
-                        // Ownership transfer: if sourcePtr was heap-allocated, dst inherits it
-                        if (functionLocalHeap.contains(sourcePtr)) {
-                            functionLocalHeap.remove(sourcePtr);
-                            functionLocalHeap.add(varName);
-                            aliasTable.markHeapAllocated(varName, symbolTable.getCurrentLevel());
-                        }
-                        // Copy aliases
-                        Set<String> aliases = aliasTable.getPointsToSet(sourcePtr);
-                        for (String alias : aliases) {
-                            aliasTable.addAlias(varName, alias);
-                        }
-                    }
-                }
-            }
-            
-            // Type compatibility check for assignment
-            if (!isTypeCompatible(leftType, rightType)) {
-                addWarning("Type mismatch in assignment: " + leftType + " = " + rightType);
-            }
-            return;  // Done with assignment handling
-        }
-        
-        // Check for pointer arithmetic (not assignment)
-        if (leftType.contains("*") || rightType.contains("*")) {
-            if (!node.operator.equals("+") && !node.operator.equals("-")) {
-                addError("Invalid pointer arithmetic with operator: " + node.operator);
-            }
-        }
-        
-        // Type compatibility check for other operations
-        if (!isTypeCompatible(leftType, rightType)) {
-            addWarning("Type mismatch in expression: " + leftType + " " + node.operator + " " + rightType);
-        }
-    }
-    
-    private void analyzeUnaryExpression(UnaryExprNode node) {
-        String exprType = inferType(node.expr);
-        
-        // Dereference operator
-        if (node.operator.equals("*")) {
-            if (!exprType.contains("*")) {
-                addError("Cannot dereference non-pointer type: " + exprType);
-            } else if (node.expr instanceof IdNode) {
-                String ptrName = ((IdNode) node.expr).name;
-                if (aliasTable.isFreed(ptrName)) {
-                    addError("Use after free: pointer '" + ptrName + "' was freed");
-                    aliasTable.recordUseAfterFree("'" + ptrName + "' (" + currentFunction + ")");
-                } else {
-                    aliasTable.checkDereference(ptrName, 0);
-                }
-            }
-        }
-        
-        // Address-of operator
-        if (node.operator.equals("&")) {
-            if (!(node.expr instanceof IdNode)) {
-                addError("Cannot take address of non-lvalue");
-            }
+
+    /**
+     * Shared pre-order walk over an expression tree, notifying every check that
+     * asked for per-node callbacks. Member names on the right of -> and . are
+     * not expressions and are skipped.
+     */
+    private void visitExpression(ASTNode node) {
+        if (node == null || expressionChecks.isEmpty()) return;
+
+        for (SemanticCheck check : expressionChecks) check.visitExpressionNode(node);
+
+        if (node instanceof BinaryExprNode) {
+            BinaryExprNode bin = (BinaryExprNode) node;
+            visitExpression(bin.left);
+            if (!bin.operator.equals("->") && !bin.operator.equals(".")) {
+                visitExpression(bin.right);
+            }
+        } else if (node instanceof UnaryExprNode) {
+            visitExpression(((UnaryExprNode) node).expr);
+        } else if (node instanceof FuncCallNode) {
+            for (ASTNode arg : ((FuncCallNode) node).args) visitExpression(arg);
+        } else if (node instanceof CastExprNode) {
+            visitExpression(((CastExprNode) node).expr);
+        } else if (node instanceof TernaryExprNode) {
+            TernaryExprNode ternary = (TernaryExprNode) node;
+            visitExpression(ternary.condition);
+            visitExpression(ternary.thenExpr);
+            visitExpression(ternary.elseExpr);
         }
     }
-    
-    private void analyzeFunctionCall(FuncCallNode node) {
-        // Function pointer calls have compound names like "(list -> free)" or "(copy -> dup)"
-        // These are indirect calls through struct members - skip declaration lookup
-        if (node.name.contains("->") || node.name.contains(".") || node.name.startsWith("(")) {
-            for (ASTNode arg : node.args) {
-                inferType(arg);
-            }
-            return;
-        }
 
-        // free() / zfree() — mark pointer as freed, detect double-free
-        if (isFreeFunction(node.name) && !node.args.isEmpty()) {
-            ASTNode firstArg = node.args.get(0);
-            if (firstArg instanceof IdNode) {
-                String ptrName = ((IdNode) firstArg).name;
-                if (conditionalDepth == 0) {
-                    // Top-level free: safe to mark as freed and detect double-free
-                    boolean ok = aliasTable.markFreed(ptrName);
-                    if (!ok) {
-                        addError("Double free of pointer '" + ptrName + "'");
-                    }
-                }
-                // Always remove from leak tracker (pointer is freed on at least one path)
-                functionLocalHeap.remove(ptrName);
-            }
-        }
+    // ------------------------------------------------------------------ check context
 
-        // Any heap pointer passed as an argument to a non-free function is assumed
-        // to have its ownership transferred (e.g. listAddNodeHead, raxInsert, dictAdd).
-        // This avoids false leak warnings for the ubiquitous "store into data structure" pattern.
-        if (!isFreeFunction(node.name)) {
-            for (ASTNode arg : node.args) {
-                if (arg instanceof IdNode) {
-                    functionLocalHeap.remove(((IdNode) arg).name);
-                }
-            }
+    SymbolTable symbols()             { return symbolTable; }
+    AliasTable aliases()              { return aliasTable; }
+    FunctionSummaries summaries()     { return summaries; }
+    String currentFunction()          { return currentFunction; }
+    int conditionalDepth()            { return conditionalDepth; }
+    
+    /**
+     * Type of an expression node. Each node is typed once per analysis; the
+     * result is cached in nodeTypes, so re-inference of shared subtrees (and
+     * of a->b->c chains) is a lookup and diagnostics raised while typing a
+     * node are reported exactly once.
+     */
+    String inferType(ASTNode node) {
+        if (node == null) return "void";
+        String type = nodeTypes.get(node);
+        if (type == null) {
+            type = internType(computeType(node));
+            nodeTypes.put(node, type);
         }
+        return type;
+    }
 
-        Symbol funcSymbol = symbolTable.lookup(node.name);
-        
-        if (funcSymbol == null) {
-            // Undeclared functions are typical in multi-file projects (defined in other .c
-            // files, declared in headers that weren't fully resolved). Warn, don't error.
-            addWarning("Function '" + node.name + "' not declared (may be external)");
-            return; // Skip argument checking — we have no signature to validate against
-        }
-        
-        if (!funcSymbol.kind.equals("function")) {
-            addError("'" + node.name + "' is not a function");
-            return;
-        }
-        
-        // Determine whether this is a variadic function ("..." as last param)
-        boolean isVariadic = !funcSymbol.paramTypes.isEmpty() &&
-                funcSymbol.paramTypes.get(funcSymbol.paramTypes.size() - 1).equals("...");
-        // Also treat a sole "..." param as pure-variadic (e.g. sizeof)
-        boolean isPureVariadic = funcSymbol.paramTypes.size() == 1 &&
-                funcSymbol.paramTypes.get(0).equals("...");
-        int requiredArgs = isVariadic ? funcSymbol.paramTypes.size() - 1 : funcSymbol.paramTypes.size();
-        
-        // Check argument count
-        if (!isVariadic && node.args.size() != funcSymbol.paramTypes.size()) {
-            addError("Function '" + node.name + "' expects " + funcSymbol.paramTypes.size() + 
-                    " arguments but got " + node.args.size());
-            return;
-        }
-        if (isVariadic && !isPureVariadic && node.args.size() < requiredArgs) {
-            addError("Function '" + node.name + "' expects at least " + requiredArgs + 
-                    " arguments but got " + node.args.size());
-            return;
-        }
-        
-        // Check argument types for the fixed (non-variadic) parameters
-        for (int i = 0; i < Math.min(node.args.size(), requiredArgs); i++) {
-            String argType = inferType(node.args.get(i));
-            String paramType = funcSymbol.paramTypes.get(i);
-            
-            if (!isTypeCompatible(paramType, argType)) {
-                addError("Argument " + (i + 1) + " of function '" + node.name + 
-                        "': expected " + paramType + " but got " + argType);
-            }
-        }
+    /** Canonical instance of a type string, so cached types share one object per type. */
+    private String internType(String type) {
+        String canonical = typeNames.putIfAbsent(type, type);
+        return canonical != null ? canonical : type;
     }
-    
-    private String inferType(ASTNode node) {
-        if (node == null) return "void";
-        
+
+    private String computeType(ASTNode node) {
         if (node instanceof LiteralNode) {
             LiteralNode lit = (LiteralNode) node;
             if (lit.type.equals("CT_INT")) return "int";
@@ -533,9 +348,7 @@ public class SemanticAnalyzer {
                 if ("function".equals(symbol.kind)) return "function_ptr";
                 return symbol.type != null ? symbol.type : "unknown";
             }
-            // Undeclared identifiers are common in multi-file projects (globals, macros,
-            // constants defined in other translation units). Report as warning, not error.
-            addWarning("Variable '" + id.name + "' not declared (may be external/macro)");
+            // Undeclared identifiers are reported by the "undeclared" rule
             return "unknown";
         }
         else if (node instanceof BinaryExprNode) {
@@ -595,16 +408,7 @@ public class SemanticAnalyzer {
             String exprType = inferType(unaryExpr.expr);
             
             if (unaryExpr.operator.equals("*")) {
-                // Dereference: check for use-after-free, then strip one pointer level
-                if (unaryExpr.expr instanceof IdNode) {
-                    String ptrName = ((IdNode) unaryExpr.expr).name;
-                    if (aliasTable.isFreed(ptrName)) {
-                        addError("Use after free: pointer '" + ptrName + "' was freed");
-                        aliasTable.recordUseAfterFree("'" + ptrName + "' (" + currentFunction + ")");
-                    } else {
-                        aliasTable.checkDereference(ptrName, 0);
-                    }
-                }
+                // Dereference: strip one pointer level (use-after-free is the "memory" rule's job)
                 if (exprType.contains("*")) {
                     return exprType.replaceFirst("\\*", "");
                 }
@@ -646,7 +450,7 @@ public class SemanticAnalyzer {
         
         // Get member name from right side
         if (!(node.right instanceof IdNode)) {
-            addError("Right side of -> must be a member name");
+            report(DiagnosticKind.ARROW_RHS_NOT_MEMBER);
             return "unknown";
         }
         String memberName = ((IdNode) node.right).name;
@@ -661,12 +465,14 @@ public class SemanticAnalyzer {
         
         // Left should be a pointer to struct
         if (!resolvedLeft.contains("*") && !leftType.contains("*")) {
-            addError("Left side of -> must be a pointer");
+            report(DiagnosticKind.ARROW_LHS_NOT_POINTER);
             return "unknown";
         }
         
         // Remove pointer to get base struct type
-        String baseType = resolvedLeft.replaceFirst("\\*", "").trim();
+        int star = resolvedLeft.indexOf('*');
+        String baseType = star < 0 ? resolvedLeft.trim()
+                : (resolvedLeft.substring(0, star) + resolvedLeft.substring(star + 1)).trim();
         
         return getMemberType(baseType, memberName);
     }
@@ -677,7 +483,7 @@ public class SemanticAnalyzer {
         
         // Get member name from right side
         if (!(node.right instanceof IdNode)) {
-            addError("Right side of . must be a member name");
+            report(DiagnosticKind.DOT_RHS_NOT_MEMBER);
             return "unknown";
         }
         String memberName = ((IdNode) node.right).name;
@@ -687,17 +493,16 @@ public class SemanticAnalyzer {
     
     private String getMemberType(String structType, String memberName) {
         // Extract struct name from "struct StructName" format
-        String structName = structType.replaceFirst("^struct\\s+", "").trim();
+        String structName = stripStructKeyword(structType);
         
         // Check AST-parsed struct definitions (from the source file itself)
         StructDeclNode structDef = structDefinitions.get(structName);
         if (structDef != null) {
-            for (VarDeclNode field : structDef.fields) {
-                if (field.name.equals(memberName)) {
-                    return field.type;
-                }
+            String fieldType = structDef.getFieldType(memberName);
+            if (fieldType != null) {
+                return fieldType;
             }
-            addError("Struct '" + structName + "' has no member named '" + memberName + "'");
+            report(DiagnosticKind.NO_SUCH_MEMBER, structName, memberName);
             return "unknown";
         }
         
@@ -709,7 +514,7 @@ public class SemanticAnalyzer {
                 if (fieldType != null) {
                     return fieldType;
                 }
-                addError("Struct '" + structName + "' has no member named '" + memberName + "'");
+                report(DiagnosticKind.NO_SUCH_MEMBER, structName, memberName);
                 return "unknown";
             }
         }
@@ -718,8 +523,16 @@ public class SemanticAnalyzer {
         return "unknown";
     }
     
+    /** "struct Name" -> "Name" (leading keyword only); other types are just trimmed. */
+    private static String stripStructKeyword(String type) {
+        if (type.startsWith("struct") && type.length() > 6 && Character.isWhitespace(type.charAt(6))) {
+            return type.substring(6).trim();
+        }
+        return type.trim();
+    }
+    
     /** Returns true when type is an integer/pointer type valid as a C condition */
-    private boolean isNumericOrPointerType(String type) {
+    boolean isNumericOrPointerType(String type) {
         if (type == null) return true;
         if (type.equals("unknown")) return true;
         if (type.contains("*")) return true;
@@ -744,7 +557,7 @@ public class SemanticAnalyzer {
             || r.contains("time_t") || r.contains("off_t") || r.contains("pid_t");
     }
 
-    private boolean isTypeCompatible(String expected, String actual) {
+    boolean isTypeCompatible(String expected, String actual) {
         // Resolve typedefs
         String resolvedExpected = resolveTypedef(expected);
         String resolvedActual = resolveTypedef(actual);
@@ -981,19 +794,34 @@ public class SemanticAnalyzer {
         return resolved;
     }
     
-    private void addError(String message) {
-        errors.add(new SemanticError(message, "error"));
+    /**
+     * Report a diagnostic at the current function (or global scope). Kinds that
+     * belong to a disabled rule are dropped (e.g. member-access errors raised by
+     * type inference run on behalf of the "conditions" rule).
+     */
+    void report(DiagnosticKind kind, Object... args) {
+        if (!enabledRules.contains(kind.rule)) return;
+        diagnostics.report(kind, currentFunction, args);
+        for (DiagnosticListener listener : listeners) listener.report(kind, currentFunction, args);
     }
     
-    private void addWarning(String message) {
-        warnings.add(new SemanticError(message, "warning"));
+    public boolean hasErrors() {
+        return diagnostics.getErrorCount() > 0;
     }
     
-    public boolean hasErrors() {
-        return !errors.isEmpty();
+    public DiagnosticSink getDiagnostics() {
+        return diagnostics;
     }
     
     public void printResults() {
+        printResults(true);
+    }
+
+    /**
+     * @param listDiagnostics  false when diagnostics were already streamed to the
+     *                         console, leaving only the tables and the summary line
+     */
+    public void printResults(boolean listDiagnostics) {
         symbolTable.print();
         aliasTable.print();
         standardLibrary.printUsedSymbols();
@@ -1001,29 +829,41 @@ public class SemanticAnalyzer {
             customResolver.printUsedSymbols();
         }
         
-        if (!errors.isEmpty() || !warnings.isEmpty()) {
+        List<Diagnostic> warnings = listDiagnostics ? diagnostics.getDiagnostics("warning") : Collections.emptyList();
+        List<Diagnostic> errors = listDiagnostics ? diagnostics.getDiagnostics("error") : Collections.emptyList();
+        
+        if (diagnostics.getErrorCount() > 0 || diagnostics.getWarningCount() > 0) {
             System.out.println("\n=== Semantic Analysis Results ===");
         }
         
         if (!warnings.isEmpty()) {
             System.out.println("\nWarnings:");
-            for (SemanticError warning : warnings) {
+            for (Diagnostic warning : warnings) {
                 System.out.println("  " + warning);
             }
         }
         
         if (!errors.isEmpty()) {
             System.out.println("\nErrors:");
-            for (SemanticError error : errors) {
+            for (Diagnostic error : errors) {
                 System.out.println("  " + error);
             }
         }
         
-        if (errors.isEmpty() && warnings.isEmpty()) {
+        if (diagnostics.getDroppedCount() > 0) {
+            System.out.println("\n  ... " + diagnostics.getDroppedCount()
+                    + " further occurrence(s) of other diagnostics not retained");
+        }
+        
+        if (diagnostics.getErrorCount() == 0 && diagnostics.getWarningCount() == 0) {
             System.out.println("\n✓ No semantic errors or warnings found!");
         }
         
-        System.out.println("\nSummary: " + errors.size() + " error(s), " + warnings.size() + " warning(s)");
+        int total = diagnostics.getErrorCount() + diagnostics.getWarningCount();
+        String distinct = diagnostics.getDistinctCount() < total
+                ? " (" + diagnostics.getDistinctCount() + " distinct)" : "";
+        System.out.println("\nSummary: " + diagnostics.getErrorCount() + " error(s), "
+                + diagnostics.getWarningCount() + " warning(s)" + distinct);
     }
     
     public SymbolTable getSymbolTable() {
@@ -0,0 +1,406 @@
+import java.util.*;
+
+/**
+ * One semantic rule, driven by SemanticAnalyzer's shared traversal.
+ *
+ * The analyzer walks declarations, scopes and statements once and calls these
+ * hooks on every enabled check; each check overrides only what it needs.
+ * Symbols are already registered when a hook runs.
+ */
+abstract class SemanticCheck {
+    protected final SemanticAnalyzer analyzer;
+
+    SemanticCheck(SemanticAnalyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
+    /** True if this check wants visitExpressionNode for every expression node. */
+    boolean visitsExpressions() { return false; }
+
+    void visitGlobalVariable(VarDeclNode node) {}
+    void enterFunction(FuncDeclNode node) {}
+    void visitParameter(VarDeclNode param) {}
+    void exitFunction(FuncDeclNode node) {}
+    void visitLocalVariable(VarDeclNode node) {}
+    void visitCondition(ASTNode condition, boolean isLoop) {}
+    void visitReturn(ReturnStmtNode node, String expectedReturnType) {}
+    /** A binary, unary or call expression used as a statement. */
+    void visitExpressionStatement(ASTNode node) {}
+    /** Pre-order callback for every expression node (see visitsExpressions). */
+    void visitExpressionNode(ASTNode node) {}
+}
+
+// Type compatibility of initializers, assignments, operators, returns and call arguments
+class TypeCheck extends SemanticCheck {
+    TypeCheck(SemanticAnalyzer analyzer) { super(analyzer); }
+
+    @Override
+    void visitGlobalVariable(VarDeclNode node) {
+        checkInit(node);
+    }
+
+    @Override
+    void visitLocalVariable(VarDeclNode node) {
+        checkInit(node);
+    }
+
+    private void checkInit(VarDeclNode node) {
+        if (node.initExpr == null) return;
+        String exprType = analyzer.inferType(node.initExpr);
+        if (!analyzer.isTypeCompatible(node.type, exprType)) {
+            analyzer.report(DiagnosticKind.INIT_TYPE_MISMATCH, node.name, node.type, exprType);
+        }
+    }
+
+    @Override
+    void visitReturn(ReturnStmtNode node, String expectedReturnType) {
+        if (node.expr != null) {
+            String returnType = analyzer.inferType(node.expr);
+            if (!analyzer.isTypeCompatible(expectedReturnType, returnType)) {
+                analyzer.report(DiagnosticKind.RETURN_TYPE_MISMATCH,
+                        analyzer.currentFunction(), expectedReturnType, returnType);
+            }
+        } else if (!expectedReturnType.equals("void")) {
+            analyzer.report(DiagnosticKind.MISSING_RETURN_VALUE, analyzer.currentFunction(), expectedReturnType);
+        }
+    }
+
+    @Override
+    void visitExpressionStatement(ASTNode node) {
+        if (node instanceof BinaryExprNode) {
+            checkBinary((BinaryExprNode) node);
+        } else if (node instanceof UnaryExprNode) {
+            checkUnary((UnaryExprNode) node);
+        } else if (node instanceof FuncCallNode) {
+            checkCall((FuncCallNode) node);
+        }
+    }
+
+    private void checkBinary(BinaryExprNode node) {
+        String leftType = analyzer.inferType(node.left);
+        String rightType = analyzer.inferType(node.right);
+
+        if (node.operator.equals("=")) {
+            if (!analyzer.isTypeCompatible(leftType, rightType)) {
+                analyzer.report(DiagnosticKind.ASSIGN_TYPE_MISMATCH, leftType, rightType);
+            }
+            return;
+        }
+
+        // Check for pointer arithmetic (not assignment)
+        if (leftType.contains("*") || rightType.contains("*")) {
+            if (!node.operator.equals("+") && !node.operator.equals("-")) {
+                analyzer.report(DiagnosticKind.INVALID_POINTER_ARITH, node.operator);
+            }
+        }
+
+        if (!analyzer.isTypeCompatible(leftType, rightType)) {
+            analyzer.report(DiagnosticKind.EXPR_TYPE_MISMATCH, leftType, node.operator, rightType);
+        }
+    }
+
+    private void checkUnary(UnaryExprNode node) {
+        String exprType = analyzer.inferType(node.expr);
+
+        if (node.operator.equals("*") && !exprType.contains("*")) {
+            analyzer.report(DiagnosticKind.DEREF_NON_POINTER, exprType);
+        }
+        if (node.operator.equals("&") && !(node.expr instanceof IdNode)) {
+            analyzer.report(DiagnosticKind.ADDRESS_OF_NON_LVALUE);
+        }
+    }
+
+    private void checkCall(FuncCallNode node) {
+        // Indirect calls through struct members ("(list -> free)") have no signature
+        if (node.name.contains("->") || node.name.contains(".") || node.name.startsWith("(")) return;
+
+        Symbol funcSymbol = analyzer.symbols().lookup(node.name);
+        if (funcSymbol == null) return; // reported by the "undeclared" rule
+
+        if (!funcSymbol.kind.equals("function")) {
+            analyzer.report(DiagnosticKind.NOT_A_FUNCTION, node.name);
+            return;
+        }
+
+        // Determine whether this is a variadic function ("..." as last param)
+        boolean isVariadic = !funcSymbol.paramTypes.isEmpty() &&
+                funcSymbol.paramTypes.get(funcSymbol.paramTypes.size() - 1).equals("...");
+        // Also treat a sole "..." param as pure-variadic (e.g. sizeof)
+        boolean isPureVariadic = funcSymbol.paramTypes.size() == 1 &&
+                funcSymbol.paramTypes.get(0).equals("...");
+        int requiredArgs = isVariadic ? funcSymbol.paramTypes.size() - 1 : funcSymbol.paramTypes.size();
+
+        if (!isVariadic && node.args.size() != funcSymbol.paramTypes.size()) {
+            analyzer.report(DiagnosticKind.ARG_COUNT, node.name, funcSymbol.paramTypes.size(), node.args.size());
+            return;
+        }
+        if (isVariadic && !isPureVariadic && node.args.size() < requiredArgs) {
+            analyzer.report(DiagnosticKind.ARG_COUNT_VARIADIC, node.name, requiredArgs, node.args.size());
+            return;
+        }
+
+        // Check argument types for the fixed (non-variadic) parameters
+        for (int i = 0; i < Math.min(node.args.size(), requiredArgs); i++) {
+            String argType = analyzer.inferType(node.args.get(i));
+            String paramType = funcSymbol.paramTypes.get(i);
+            if (!analyzer.isTypeCompatible(paramType, argType)) {
+                analyzer.report(DiagnosticKind.ARG_TYPE_MISMATCH, i + 1, node.name, paramType, argType);
+            }
+        }
+    }
+}
+
+// if/while conditions must be numeric or pointer typed
+class ConditionCheck extends SemanticCheck {
+    ConditionCheck(SemanticAnalyzer analyzer) { super(analyzer); }
+
+    @Override
+    void visitCondition(ASTNode condition, boolean isLoop) {
+        String condType = analyzer.inferType(condition);
+        // In C, any pointer/integer/numeric type is a valid condition (if (ptr) is legal)
+        if (!analyzer.isNumericOrPointerType(condType)) {
+            analyzer.report(isLoop ? DiagnosticKind.LOOP_CONDITION_TYPE : DiagnosticKind.CONDITION_TYPE, condType);
+        }
+    }
+}
+
+// Identifiers and called functions that resolve to no symbol
+class UndeclaredCheck extends SemanticCheck {
+    UndeclaredCheck(SemanticAnalyzer analyzer) { super(analyzer); }
+
+    @Override
+    boolean visitsExpressions() { return true; }
+
+    @Override
+    void visitExpressionNode(ASTNode node) {
+        if (node instanceof IdNode) {
+            String name = ((IdNode) node).name;
+            // Undeclared identifiers are common in multi-file projects (globals, macros,
+            // constants defined in other translation units). Report as warning, not error.
+            if (analyzer.symbols().lookup(name) == null) {
+                analyzer.report(DiagnosticKind.UNDECLARED_VARIABLE, name);
+            }
+        } else if (node instanceof FuncCallNode) {
+            String name = ((FuncCallNode) node).name;
+            if (name.contains("->") || name.contains(".") || name.startsWith("(")) return;
+            // Functions defined in other .c files are typical — warn, don't error
+            if (analyzer.symbols().lookup(name) == null) {
+                analyzer.report(DiagnosticKind.UNDECLARED_FUNCTION, name);
+            }
+        }
+    }
+}
+
+// Heap ownership, leaks, double free and use after free
+class MemoryCheck extends SemanticCheck {
+    // Heap-allocated pointers in the current function scope (for leak detection)
+    private final Set<String> functionLocalHeap = new HashSet<>();
+
+    MemoryCheck(SemanticAnalyzer analyzer) { super(analyzer); }
+
+    private boolean isAllocFunction(String name) { return analyzer.summaries().returnsFreshAllocation(name); }
+
+    @Override
+    boolean visitsExpressions() { return true; }
+
+    @Override
+    void visitGlobalVariable(VarDeclNode node) {
+        trackPointer(node);
+    }
+
+    @Override
+    void enterFunction(FuncDeclNode node) {
+        analyzer.aliases().resetForNewFunction(); // clear per-pointer state from previous function
+    }
+
+    @Override
+    void visitParameter(VarDeclNode param) {
+        trackPointer(param);
+    }
+
+    private void trackPointer(VarDeclNode node) {
+        if (node.type.contains("*")) {
+            analyzer.aliases().addPointer(node.name);
+            if (node.type.startsWith("void")) {
+                analyzer.aliases().markVoidPointer(node.name);
+            }
+        }
+    }
+
+    @Override
+    void exitFunction(FuncDeclNode node) {
+        // Any heap-allocated pointers not freed before function exit
+        for (String ptr : functionLocalHeap) {
+            analyzer.report(DiagnosticKind.MEMORY_LEAK, ptr, node.name);
+            analyzer.aliases().recordLeak(ptr + " in " + node.name);
+        }
+        functionLocalHeap.clear();
+    }
+
+    @Override
+    void visitLocalVariable(VarDeclNode node) {
+        AliasTable aliases = analyzer.aliases();
+        trackPointer(node);
+        if (node.initExpr == null || !node.type.contains("*")) return;
+
+        // int *p = malloc(...) — mark as heap-allocated
+        if (node.initExpr instanceof FuncCallNode && isAllocFunction(((FuncCallNode) node.initExpr).name)) {
+            aliases.markHeapAllocated(node.name);
+            functionLocalHeap.add(node.name);
+        }
+        // int *q = p — ownership transfer if p was heap-allocated
+        if (node.initExpr instanceof IdNode) {
+            String sourcePtr = ((IdNode) node.initExpr).name;
+            if (functionLocalHeap.remove(sourcePtr)) {
+                functionLocalHeap.add(node.name);
+                aliases.markHeapAllocated(node.name);
+            }
+        }
+    }
+
+    @Override
+    void visitReturn(ReturnStmtNode node, String expectedReturnType) {
+        // Returning a heap pointer transfers ownership to the caller — not a leak
+        if (node.expr instanceof IdNode) {
+            functionLocalHeap.remove(((IdNode) node.expr).name);
+        }
+    }
+
+    @Override
+    void visitExpressionStatement(ASTNode node) {
+        if (node instanceof BinaryExprNode && ((BinaryExprNode) node).operator.equals("=")) {
+            checkAssignment((BinaryExprNode) node);
+        } else if (node instanceof FuncCallNode) {
+            checkCall((FuncCallNode) node);
+        }
+    }
+
+    private void checkAssignment(BinaryExprNode node) {
+        AliasTable aliases = analyzer.aliases();
+        SymbolTable symbols = analyzer.symbols();
+
+        // struct->field = ptr  or  struct.field = ptr
+        // — pointer is being stored into a data structure; ownership transfers out.
+        if (node.left instanceof BinaryExprNode && node.right instanceof IdNode) {
+            BinaryExprNode lhs = (BinaryExprNode) node.left;
+            if (lhs.operator.equals("->") || lhs.operator.equals(".")) {
+                functionLocalHeap.remove(((IdNode) node.right).name);
+            }
+        }
+        if (!(node.left instanceof IdNode)) return;
+
+        String varName = ((IdNode) node.left).name;
+        Symbol symbol = symbols.lookup(varName);
+        if (symbol == null || !symbol.isPointer) return;
+
+        // p = malloc(...) — only track locals; globals are intentionally long-lived
+        if (node.right instanceof FuncCallNode && isAllocFunction(((FuncCallNode) node.right).name)
+                && symbol.scopeLevel > 0) {
+            aliases.markHeapAllocated(varName);
+            functionLocalHeap.add(varName);
+        }
+        // Track pointer assignment
+        if (node.right instanceof UnaryExprNode) {
+            UnaryExprNode unary = (UnaryExprNode) node.right;
+            if (unary.operator.equals("&") && unary.expr instanceof IdNode) {
+                aliases.addAlias(varName, ((IdNode) unary.expr).name);
+            }
+        } else if (node.right instanceof IdNode) {
+            String sourcePtr = ((IdNode) node.right).name;
+            // Ownership transfer: if sourcePtr was heap-allocated, dst inherits it
+            if (functionLocalHeap.remove(sourcePtr)) {
+                functionLocalHeap.add(varName);
+                aliases.markHeapAllocated(varName);
+            }
+            aliases.copyAliases(varName, sourcePtr);
+        }
+    }
+
+    private void checkCall(FuncCallNode node) {
+        if (node.name.contains("->") || node.name.contains(".") || node.name.startsWith("(")) return;
+
+        FunctionSummaries summaries = analyzer.summaries();
+        // free() / zfree() and any callee whose summary frees a parameter —
+        // mark the pointer as freed, detect double-free
+        for (int k = 0; k < node.args.size(); k++) {
+            ASTNode arg = node.args.get(k);
+            if (!(arg instanceof IdNode)) continue;
+            String ptrName = ((IdNode) arg).name;
+            if (summaries.freesParam(node.name, k)) {
+                if (analyzer.conditionalDepth() == 0) {
+                    // Top-level free: safe to mark as freed and detect double-free
+                    if (!analyzer.aliases().markFreed(ptrName)) {
+                        analyzer.report(DiagnosticKind.DOUBLE_FREE, ptrName);
+                    }
+                }
+                // Always remove from leak tracker (pointer is freed on at least one path)
+                functionLocalHeap.remove(ptrName);
+            } else if (summaries.mayStoreParam(node.name, k)) {
+                // Heap pointer handed to a callee that stores it (per its summary), or to an
+                // unknown callee, which is assumed to take ownership (e.g. listAddNodeHead,
+                // raxInsert, dictAdd). Callees summarized as only borrowing the argument
+                // leave ownership with the caller.
+                functionLocalHeap.remove(ptrName);
+            }
+        }
+    }
+
+    @Override
+    void visitExpressionNode(ASTNode node) {
+        if (!(node instanceof UnaryExprNode)) return;
+        UnaryExprNode unary = (UnaryExprNode) node;
+        if (!unary.operator.equals("*") || !(unary.expr instanceof IdNode)) return;
+
+        String ptrName = ((IdNode) unary.expr).name;
+        AliasTable aliases = analyzer.aliases();
+        if (aliases.isFreed(ptrName)) {
+            analyzer.report(DiagnosticKind.USE_AFTER_FREE, ptrName);
+            aliases.recordUseAfterFree("'" + ptrName + "' (" + analyzer.currentFunction() + ")");
+        } else {
+            aliases.checkDereference(ptrName, 0);
+        }
+    }
+}
+
+/**
+ * Rule registry for the semantic pass. Each rule name maps to one check;
+ * "declarations" (redeclared structs, parameters, variables) is part of the
+ * core traversal and only filters what gets reported.
+ */
+class SemanticRules {
+    static final String DECLARATIONS = "declarations";
+    static final String TYPES = "types";
+    static final String CONDITIONS = "conditions";
+    static final String UNDECLARED = "undeclared";
+    static final String MEMORY = "memory";
+
+    static final List<String> ALL = Collections.unmodifiableList(
+            Arrays.asList(DECLARATIONS, TYPES, CONDITIONS, UNDECLARED, MEMORY));
+
+    /** Parses a comma-separated rule list ("memory,types"); "all" selects every rule. */
+    static Set<String> parse(String spec) {
+        Set<String> rules = new LinkedHashSet<>();
+        for (String part : spec.split(",")) {
+            String name = part.trim().toLowerCase();
+            if (name.isEmpty()) continue;
+            if (name.equals("all")) {
+                rules.addAll(ALL);
+            } else if (ALL.contains(name)) {
+                rules.add(name);
+            } else {
+                throw new IllegalArgumentException("Unknown rule '" + name + "' (expected one of " + ALL + ")");
+            }
+        }
+        return rules;
+    }
+
+    /** Instantiates the checks for the enabled rules, in a fixed order. */
+    static List<SemanticCheck> createChecks(Set<String> rules, SemanticAnalyzer analyzer) {
+        List<SemanticCheck> checks = new ArrayList<>();
+        if (rules.contains(MEMORY)) checks.add(new MemoryCheck(analyzer));
+        if (rules.contains(TYPES)) checks.add(new TypeCheck(analyzer));
+        if (rules.contains(CONDITIONS)) checks.add(new ConditionCheck(analyzer));
+        if (rules.contains(UNDECLARED)) checks.add(new UndeclaredCheck(analyzer));
+        return checks;
+    }
+}
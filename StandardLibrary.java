@@ -2,23 +2,47 @@ import java.util.*;
 import java.io.*;
 import java.nio.file.*;
 
-// Standard library function and type definitions
-public class StandardLibrary {
-    private Map<String, LibraryFunction> functions;
-    private Map<String, String> typedefs;
-    private Map<String, String> variables;  // global variables / macro constants
-    private Set<String> usedFunctions;
-    private Set<String> usedTypes;
-    private Set<String> usedVariables;
+// Standard library function and type definitions.
+//
+// The catalogue (functions, typedefs, variables) is built once per JVM into an
+// immutable, shared instance; every StandardLibrary only adds the small
+// per-analysis "used" sets, so constructing one is cheap and concurrent
+// analyses can share the tables safely. Symbols reach the SymbolTable lazily,
+// through resolve(), only when the program looks them up.
+public class StandardLibrary implements SymbolProvider {
+    // Catalogue tables — unmodifiable views shared by all instances
+    private final Map<String, LibraryFunction> functions;
+    private final Map<String, String> typedefs;
+    private final Map<String, String> variables;  // global variables / macro constants
+    // Per-analysis state
+    private final Set<String> usedFunctions = new LinkedHashSet<>();
+    private final Set<String> usedTypes = new LinkedHashSet<>();
+    private final Set<String> usedVariables = new HashSet<>();
+
+    // Initialization-on-demand holder: the catalogue is built on first use,
+    // exactly once, and safely published to all threads.
+    private static final class Catalogue {
+        static final StandardLibrary INSTANCE = buildCatalogue();
+    }
     
     public StandardLibrary() {
-        this.functions = new HashMap<>();
-        this.typedefs = new HashMap<>();
-        this.variables = new HashMap<>();
-        this.usedFunctions = new HashSet<>();
-        this.usedTypes = new HashSet<>();
-        this.usedVariables = new HashSet<>();
-        initializeStandardLibrary();
+        this(Catalogue.INSTANCE.functions, Catalogue.INSTANCE.typedefs, Catalogue.INSTANCE.variables);
+    }
+
+    private StandardLibrary(Map<String, LibraryFunction> functions, Map<String, String> typedefs,
+                            Map<String, String> variables) {
+        this.functions = functions;
+        this.typedefs = typedefs;
+        this.variables = variables;
+    }
+
+    /** Builds and freezes the shared catalogue (Catalogue.INSTANCE only). */
+    private static StandardLibrary buildCatalogue() {
+        StandardLibrary builder = new StandardLibrary(new HashMap<>(), new HashMap<>(), new HashMap<>());
+        builder.initializeStandardLibrary();
+        return new StandardLibrary(Collections.unmodifiableMap(builder.functions),
+                                   Collections.unmodifiableMap(builder.typedefs),
+                                   Collections.unmodifiableMap(builder.variables));
     }
     
     private void initializeStandardLibrary() {
@@ -991,7 +1015,7 @@ public class StandardLibrary {
     }
     
     private void addFunction(String name, String returnType, String... paramTypes) {
-        List<String> params = new ArrayList<>(Arrays.asList(paramTypes));
+        List<String> params = Collections.unmodifiableList(Arrays.asList(paramTypes));
         functions.put(name, new LibraryFunction(name, returnType, params));
     }
     
@@ -1003,142 +1027,31 @@ public class StandardLibrary {
         variables.put(name, type);
     }
     
-    public void scanForUsedSymbols(ProgramNode program) {
-        usedFunctions.clear();
-        usedTypes.clear();
-        scanNode(program);
-    }
-    
-    private void scanNode(ASTNode node) {
-        if (node == null) return;
-        
-        if (node instanceof ProgramNode) {
-            ProgramNode prog = (ProgramNode) node;
-            for (ASTNode decl : prog.declarations) {
-                scanNode(decl);
-            }
-        }
-        else if (node instanceof FuncDeclNode) {
-            FuncDeclNode func = (FuncDeclNode) node;
-            scanType(func.retType);
-            for (VarDeclNode arg : func.args) {
-                scanNode(arg);
-            }
-            scanNode(func.body);
-        }
-        else if (node instanceof VarDeclNode) {
-            VarDeclNode var = (VarDeclNode) node;
-            scanType(var.type);
-            scanNode(var.initExpr);
-        }
-        else if (node instanceof BlockNode) {
-            BlockNode block = (BlockNode) node;
-            for (ASTNode stmt : block.statements) {
-                scanNode(stmt);
-            }
-        }
-        else if (node instanceof IfStmtNode) {
-            IfStmtNode ifStmt = (IfStmtNode) node;
-            scanNode(ifStmt.condition);
-            scanNode(ifStmt.thenBranch);
-            scanNode(ifStmt.elseBranch);
-        }
-        else if (node instanceof WhileStmtNode) {
-            WhileStmtNode whileStmt = (WhileStmtNode) node;
-            scanNode(whileStmt.condition);
-            scanNode(whileStmt.body);
+    /**
+     * Materializes the library symbol for a name on first lookup (see
+     * SymbolTable.addProvider) and records it as used. For names defined in
+     * more than one table, variables win over functions over typedefs.
+     */
+    @Override
+    public Symbol resolve(String name) {
+        String varType = variables.get(name);
+        if (varType != null) {
+            return new Symbol(name, varType, "variable", 0);
         }
-        else if (node instanceof ReturnStmtNode) {
-            ReturnStmtNode retStmt = (ReturnStmtNode) node;
-            scanNode(retStmt.expr);
+        LibraryFunction func = functions.get(name);
+        if (func != null) {
+            usedFunctions.add(name);
+            Symbol symbol = new Symbol(name, func.returnType, "function", 0);
+            symbol.returnType = func.returnType;
+            symbol.paramTypes.addAll(func.paramTypes);
+            return symbol;
         }
-        else if (node instanceof BinaryExprNode) {
-            BinaryExprNode binExpr = (BinaryExprNode) node;
-            scanNode(binExpr.left);
-            scanNode(binExpr.right);
-        }
-        else if (node instanceof UnaryExprNode) {
-            UnaryExprNode unaryExpr = (UnaryExprNode) node;
-            scanNode(unaryExpr.expr);
-        }
-        else if (node instanceof FuncCallNode) {
-            FuncCallNode funcCall = (FuncCallNode) node;
-            usedFunctions.add(funcCall.name);
-            for (ASTNode arg : funcCall.args) {
-                scanNode(arg);
-            }
-        }
-        else if (node instanceof TypedefDeclNode) {
-            TypedefDeclNode typedef = (TypedefDeclNode) node;
-            scanType(typedef.baseType);
-        }
-        else if (node instanceof StructDeclNode) {
-            StructDeclNode struct = (StructDeclNode) node;
-            for (VarDeclNode field : struct.fields) {
-                scanNode(field);
-            }
-        }
-    }
-    
-    private void scanType(String type) {
-        if (type == null) return;
-        
-        // Extract base type name (remove pointers and qualifiers)
-        String baseType = type.replaceAll("\\*", "").trim();
-        baseType = baseType.replaceAll("\\bconst\\b", "").trim();
-        baseType = baseType.replaceAll("\\bvolatile\\b", "").trim();
-        baseType = baseType.replaceAll("\\brestrict\\b", "").trim();
-        baseType = baseType.replaceAll("\\bstruct\\b", "").trim();
-        baseType = baseType.replaceAll("\\bunion\\b", "").trim();
-        baseType = baseType.replaceAll("\\benum\\b", "").trim();
-        
-        // Check if it's a typedef we know about
-        if (typedefs.containsKey(baseType)) {
-            usedTypes.add(baseType);
-        }
-    }
-    
-    public void registerUsedSymbols(SymbolTable symbolTable) {
-        // Register used typedefs
-        for (String typeName : usedTypes) {
-            if (typedefs.containsKey(typeName)) {
-                String baseType = typedefs.get(typeName);
-                symbolTable.addSymbol(typeName, baseType, "typedef");
-            }
-        }
-        
-        // Register used functions (and any typedefs that appear in their signatures)
-        for (String funcName : usedFunctions) {
-            if (functions.containsKey(funcName)) {
-                LibraryFunction func = functions.get(funcName);
-                Symbol symbol = new Symbol(funcName, func.returnType, "function", 0);
-                symbol.returnType = func.returnType;
-                symbol.paramTypes.addAll(func.paramTypes);
-                symbolTable.addSymbol(symbol);
-                // Ensure typedefs used in return/param types are resolvable
-                registerTypedefIfKnown(func.returnType, symbolTable);
-                for (String paramType : func.paramTypes) {
-                    registerTypedefIfKnown(paramType, symbolTable);
-                }
-            }
-        }
-        
-        // Register all standard variables / errno constants unconditionally
-        for (Map.Entry<String, String> entry : variables.entrySet()) {
-            symbolTable.addSymbol(entry.getKey(), entry.getValue(), "variable");
-        }
-    }
-    
-    /** Register a typedef by name into the symbol table if this library knows about it. */
-    private void registerTypedefIfKnown(String type, SymbolTable symbolTable) {
-        if (type == null) return;
-        // Strip pointer/array qualifiers to get the base type name
-        String base = type.replaceAll("\\*.*", "").replaceAll("\\[.*", "")
-                          .replaceAll("\\bconst\\b", "").replaceAll("\\bstruct\\b", "").trim();
-        if (!base.isEmpty() && typedefs.containsKey(base)
-                && symbolTable.lookupTypedef(base) == null) {
-            symbolTable.addSymbol(base, typedefs.get(base), "typedef");
+        String baseType = typedefs.get(name);
+        if (baseType != null) {
+            usedTypes.add(name);
+            return new Symbol(name, baseType, "typedef", 0);
         }
+        return null;
     }
 
     public boolean isStandardFunction(String name) {
@@ -1156,6 +1069,11 @@ public class StandardLibrary {
     public Set<String> getTypedefNames() {
         return new HashSet<>(typedefs.keySet());
     }
+
+    /** Typedef names of the shared catalogue, without creating an analysis instance. */
+    public static Set<String> standardTypedefNames() {
+        return Catalogue.INSTANCE.typedefs.keySet();
+    }
     
     public void printUsedSymbols() {
         if (!usedFunctions.isEmpty() || !usedTypes.isEmpty()) {
@@ -1180,11 +1098,11 @@ public class StandardLibrary {
         }
     }
     
-    // Helper class to store function information
+    // Helper class to store function information (immutable; part of the shared catalogue)
     private static class LibraryFunction {
-        String name;
-        String returnType;
-        List<String> paramTypes;
+        final String name;
+        final String returnType;
+        final List<String> paramTypes;
         
         LibraryFunction(String name, String returnType, List<String> paramTypes) {
             this.name = name;
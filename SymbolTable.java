@@ -83,18 +83,53 @@ class Scope {
     }
 }
 
+// Read-only source of external (library / header) symbols. resolve() builds a
+// fresh global-scope Symbol for the name, or returns null if it has none.
+interface SymbolProvider {
+    Symbol resolve(String name);
+}
+
 // Symbol Table manages all scopes and symbols
 class SymbolTable {
     private Scope currentScope;
     private Scope globalScope;
     private int currentLevel;
     private List<Symbol> allSymbols;
+    // External symbols: consulted in order when a name misses every scope. A
+    // resolved symbol is materialized once and cached; misses are cached too.
+    private List<SymbolProvider> providers;
+    private Map<String, Symbol> externalSymbols;
+    private Set<String> unresolved;
     
     public SymbolTable() {
         currentLevel = 0;
         globalScope = new Scope(0, null);
         currentScope = globalScope;
         allSymbols = new ArrayList<>();
+        providers = new ArrayList<>();
+        externalSymbols = new HashMap<>();
+        unresolved = new HashSet<>();
+    }
+
+    /** Appends an external symbol provider; earlier providers take precedence. */
+    public void addProvider(SymbolProvider provider) {
+        providers.add(provider);
+        unresolved.clear();
+    }
+
+    private Symbol lookupExternal(String name) {
+        Symbol symbol = externalSymbols.get(name);
+        if (symbol != null || providers.isEmpty() || unresolved.contains(name)) return symbol;
+        for (SymbolProvider provider : providers) {
+            symbol = provider.resolve(name);
+            if (symbol != null) {
+                externalSymbols.put(name, symbol);
+                allSymbols.add(symbol);
+                return symbol;
+            }
+        }
+        unresolved.add(name);
+        return null;
     }
     
     public void enterScope() {
@@ -121,7 +156,8 @@ class SymbolTable {
     }
     
     public Symbol lookup(String name) {
-        return currentScope.lookup(name);
+        Symbol symbol = currentScope.lookup(name);
+        return symbol != null ? symbol : lookupExternal(name);
     }
     
     public Symbol lookupInCurrentScope(String name) {
@@ -141,7 +177,8 @@ class SymbolTable {
             }
             scope = scope.parent;
         }
-        return null;
+        Symbol external = lookupExternal(name);
+        return external != null && external.kind.equals("typedef") ? external : null;
     }
     
     public boolean isDeclared(String name) {
@@ -166,58 +203,24 @@ class SymbolTable {
     }
 }
 
-// Alias Table Entry - tracks pointer aliases
-class AliasEntry {
-    String pointerName;
-    Set<String> pointsTo; // Set of variable names this pointer might point to
-    boolean isDangling;
-    boolean isVoid;
-    boolean isFreed;           // pointer was explicitly free()'d
-    boolean isHeapAllocated;   // pointer owns heap memory (malloc/calloc/...)
-    int scopeLevel;
-    
-    public AliasEntry(String pointerName, int scopeLevel) {
-        this.pointerName = pointerName;
-        this.pointsTo = new HashSet<>();
-        this.isDangling = false;
-        this.isVoid = false;
-        this.isFreed = false;
-        this.isHeapAllocated = false;
-        this.scopeLevel = scopeLevel;
-    }
-    
-    public void addAlias(String varName) {
-        pointsTo.add(varName);
-    }
-    
-    public void removeAlias(String varName) {
-        pointsTo.remove(varName);
-        if (pointsTo.isEmpty()) {
-            isDangling = true;
-        }
-    }
-    
-    @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append(String.format("%-15s -> [", pointerName));
-        if (isHeapAllocated && pointsTo.isEmpty()) {
-            sb.append("heap");
-        } else {
-            sb.append(String.join(", ", pointsTo));
-        }
-        sb.append("]");
-        if (isFreed)      sb.append(" FREED!");
-        else if (isDangling) sb.append(" DANGLING!");
-        if (isVoid)       sb.append(" VOID_PTR");
-        if (isHeapAllocated && !isFreed) sb.append(" heap-owned");
-        return sb.toString();
-    }
-}
-
-// Alias Table - array of lists approach for pointer analysis
+// Alias Table - per-function points-to analysis over interned pointer ids.
+//
+// Every pointer and alias target seen in the current function is mapped to a
+// dense int id. Points-to sets and the per-pointer state flags are BitSets over
+// those ids, so union, clear and snapshot are word operations instead of
+// HashSet<String> churn.
 class AliasTable {
-    private Map<String, AliasEntry> aliases;
+    // ---- per-function state (cleared by resetForNewFunction) ----
+    private final Map<String, Integer> ids;   // name -> dense id
+    private final List<String> names;         // id -> name
+    private BitSet[] pointsTo;                // id -> ids of variables it may point to (lazily allocated)
+    private final BitSet tracked;             // ids that are pointers (not only alias targets)
+    private final BitSet dangling;
+    private final BitSet voidPtr;
+    private final BitSet freed;               // pointer was explicitly free()'d
+    private final BitSet heap;                // pointer owns heap memory (malloc/calloc/...)
+
+    // ---- accumulated across functions ----
     private List<String> danglingPointers;
     private List<String> voidPointerCalls;
     private List<String> useAfterFree;   // use-after-free violations
@@ -225,83 +228,138 @@ class AliasTable {
     private List<String> memoryLeaks;    // leaked heap allocations
     
     public AliasTable() {
-        this.aliases = new HashMap<>();
+        this.ids = new HashMap<>();
+        this.names = new ArrayList<>();
+        this.pointsTo = new BitSet[16];
+        this.tracked = new BitSet();
+        this.dangling = new BitSet();
+        this.voidPtr = new BitSet();
+        this.freed = new BitSet();
+        this.heap = new BitSet();
         this.danglingPointers = new ArrayList<>();
         this.voidPointerCalls = new ArrayList<>();
         this.useAfterFree = new ArrayList<>();
         this.doubleFree = new ArrayList<>();
         this.memoryLeaks = new ArrayList<>();
     }
-    
-    public void addPointer(String pointerName, int scopeLevel) {
-        if (!aliases.containsKey(pointerName)) {
-            aliases.put(pointerName, new AliasEntry(pointerName, scopeLevel));
+
+    /** Returns the dense id of name, interning it on first use. */
+    private int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) return id;
+        int newId = names.size();
+        names.add(name);
+        ids.put(name, newId);
+        if (newId == pointsTo.length) {
+            pointsTo = Arrays.copyOf(pointsTo, newId * 2);
         }
+        return newId;
+    }
+
+    /** Returns the id of a tracked pointer, or -1 if the name has no entry. */
+    private int idOf(String pointerName) {
+        Integer id = ids.get(pointerName);
+        return (id != null && tracked.get(id)) ? id : -1;
+    }
+
+    /** Returns the id of pointerName, creating its entry if needed. */
+    private int entry(String pointerName) {
+        int id = intern(pointerName);
+        tracked.set(id);
+        return id;
+    }
+
+    private BitSet pointsToOf(int id) {
+        BitSet set = pointsTo[id];
+        if (set == null) {
+            set = new BitSet();
+            pointsTo[id] = set;
+        }
+        return set;
+    }
+
+    private boolean pointsToEmpty(int id) {
+        return pointsTo[id] == null || pointsTo[id].isEmpty();
+    }
+    
+    public void addPointer(String pointerName) {
+        entry(pointerName);
     }
     
     public void addAlias(String pointerName, String targetName) {
-        if (!aliases.containsKey(pointerName)) {
-            aliases.put(pointerName, new AliasEntry(pointerName, 0));
-        }
-        aliases.get(pointerName).addAlias(targetName);
+        int id = entry(pointerName);
+        pointsToOf(id).set(intern(targetName));
         // Reassigning clears freed/dangling state — pointer now points somewhere new
-        aliases.get(pointerName).isDangling = false;
-        aliases.get(pointerName).isFreed = false;
+        dangling.clear(id);
+        freed.clear(id);
+    }
+
+    /**
+     * dst = src: dst may now point to everything src points to.
+     * A single BitSet union rather than one addAlias call per target.
+     */
+    public void copyAliases(String dstPointer, String srcPointer) {
+        int src = idOf(srcPointer);
+        if (src < 0 || pointsToEmpty(src)) return;
+        int dst = entry(dstPointer);
+        pointsToOf(dst).or(pointsTo[src]);
+        dangling.clear(dst);
+        freed.clear(dst);
     }
     
     public void removeAlias(String pointerName, String targetName) {
-        if (aliases.containsKey(pointerName)) {
-            aliases.get(pointerName).removeAlias(targetName);
-            if (aliases.get(pointerName).isDangling) {
-                danglingPointers.add(pointerName);
-            }
+        int id = idOf(pointerName);
+        Integer target = ids.get(targetName);
+        if (id < 0) return;
+        if (target != null && pointsTo[id] != null) {
+            pointsTo[id].clear(target);
+        }
+        if (pointsToEmpty(id)) {
+            dangling.set(id);
+            danglingPointers.add(pointerName);
         }
     }
     
     /** Mark pointer as owning heap memory (result of malloc/calloc/etc.) */
-    public void markHeapAllocated(String pointerName, int scopeLevel) {
-        if (!aliases.containsKey(pointerName)) {
-            aliases.put(pointerName, new AliasEntry(pointerName, scopeLevel));
-        }
-        AliasEntry entry = aliases.get(pointerName);
-        entry.isHeapAllocated = true;
-        entry.isFreed = false;
-        entry.isDangling = false;
-        entry.pointsTo.clear(); // now points to heap, not a named var
+    public void markHeapAllocated(String pointerName) {
+        int id = entry(pointerName);
+        heap.set(id);
+        freed.clear(id);
+        dangling.clear(id);
+        if (pointsTo[id] != null) pointsTo[id].clear(); // now points to heap, not a named var
     }
     
     /** Called when free(ptr) — marks pointer as freed/dangling. */
     public boolean markFreed(String pointerName) {
-        if (!aliases.containsKey(pointerName)) {
-            aliases.put(pointerName, new AliasEntry(pointerName, 0));
-        }
-        AliasEntry entry = aliases.get(pointerName);
-        if (entry.isFreed) {
+        int id = entry(pointerName);
+        if (freed.get(id)) {
             doubleFree.add(pointerName);
             return false; // double-free detected
         }
-        entry.isFreed = true;
-        entry.isDangling = true;
-        entry.isHeapAllocated = false; // no longer owns heap memory
-        entry.pointsTo.clear();
+        freed.set(id);
+        dangling.set(id);
+        heap.clear(id); // no longer owns heap memory
+        if (pointsTo[id] != null) pointsTo[id].clear();
         return true;
     }
     
     /** Returns true if pointer was already freed. */
     public boolean isFreed(String pointerName) {
-        return aliases.containsKey(pointerName) && aliases.get(pointerName).isFreed;
+        int id = idOf(pointerName);
+        return id >= 0 && freed.get(id);
     }
     
     /** Returns true if pointer owns heap memory (malloc'd but not freed). */
     public boolean isHeapAllocated(String pointerName) {
-        return aliases.containsKey(pointerName) && aliases.get(pointerName).isHeapAllocated;
+        int id = idOf(pointerName);
+        return id >= 0 && heap.get(id);
     }
     
     /** Returns a snapshot of all heap-owning (unfreed) pointer names. */
     public Set<String> getHeapAllocated() {
-        Set<String> result = new HashSet<>();
-        for (AliasEntry entry : aliases.values()) {
-            if (entry.isHeapAllocated) result.add(entry.pointerName);
+        Set<String> result = new LinkedHashSet<>();
+        for (int id = heap.nextSetBit(0); id >= 0; id = heap.nextSetBit(id + 1)) {
+            result.add(names.get(id));
         }
         return result;
     }
@@ -318,40 +376,51 @@ class AliasTable {
     
     /**
      * Reset per-pointer tracking when entering a new function scope.
-     * Clears the alias map so freed/heap state from a previous function
-     * does not leak into the next one. Accumulated error/warning lists
-     * (doubleFree, useAfterFree, memoryLeaks, etc.) are intentionally kept.
+     * Drops the interned ids and clears the state bitsets so freed/heap state
+     * from a previous function does not leak into the next one. Accumulated
+     * error/warning lists (doubleFree, useAfterFree, memoryLeaks, etc.) are
+     * intentionally kept.
      */
     public void resetForNewFunction() {
-        aliases.clear();
+        for (int id = 0; id < names.size(); id++) {
+            if (pointsTo[id] != null) pointsTo[id].clear();
+        }
+        ids.clear();
+        names.clear();
+        tracked.clear();
+        dangling.clear();
+        voidPtr.clear();
+        freed.clear();
+        heap.clear();
     }
 
     public void markVoidPointer(String pointerName) {
-        if (aliases.containsKey(pointerName)) {
-            aliases.get(pointerName).isVoid = true;
-        }
+        int id = idOf(pointerName);
+        if (id >= 0) voidPtr.set(id);
     }
     
     public void checkDereference(String pointerName, int line) {
-        if (aliases.containsKey(pointerName)) {
-            AliasEntry entry = aliases.get(pointerName);
-            if (entry.isFreed) {
-                String msg = "'" + pointerName + "'";
-                useAfterFree.add(msg);
-            } else if (entry.isDangling) {
-                danglingPointers.add(pointerName + " at line " + line);
-            }
-            if (entry.isVoid) {
-                voidPointerCalls.add(pointerName + " at line " + line);
-            }
+        int id = idOf(pointerName);
+        if (id < 0) return;
+        if (freed.get(id)) {
+            useAfterFree.add("'" + pointerName + "'");
+        } else if (dangling.get(id)) {
+            danglingPointers.add(pointerName + " at line " + line);
+        }
+        if (voidPtr.get(id)) {
+            voidPointerCalls.add(pointerName + " at line " + line);
         }
     }
     
     public Set<String> getPointsToSet(String pointerName) {
-        if (aliases.containsKey(pointerName)) {
-            return aliases.get(pointerName).pointsTo;
+        Set<String> result = new LinkedHashSet<>();
+        int id = idOf(pointerName);
+        if (id < 0 || pointsTo[id] == null) return result;
+        BitSet set = pointsTo[id];
+        for (int t = set.nextSetBit(0); t >= 0; t = set.nextSetBit(t + 1)) {
+            result.add(names.get(t));
         }
-        return new HashSet<>();
+        return result;
     }
     
     public List<String> getDanglingPointers() { return danglingPointers; }
@@ -359,18 +428,34 @@ class AliasTable {
     public List<String> getUseAfterFree()     { return useAfterFree; }
     public List<String> getDoubleFree()       { return doubleFree; }
     public List<String> getMemoryLeaks()      { return memoryLeaks; }
+
+    private String formatEntry(int id) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-15s -> [", names.get(id)));
+        if (heap.get(id) && pointsToEmpty(id)) {
+            sb.append("heap");
+        } else if (!pointsToEmpty(id)) {
+            sb.append(String.join(", ", getPointsToSet(names.get(id))));
+        }
+        sb.append("]");
+        if (freed.get(id))         sb.append(" FREED!");
+        else if (dangling.get(id)) sb.append(" DANGLING!");
+        if (voidPtr.get(id))       sb.append(" VOID_PTR");
+        if (heap.get(id) && !freed.get(id)) sb.append(" heap-owned");
+        return sb.toString();
+    }
     
     public void print() {
         System.out.println("\n=== Alias Table ===");
-        if (aliases.isEmpty()) {
+        if (tracked.isEmpty()) {
             System.out.println("No pointers found.");
             return;
         }
         
         System.out.println("Pointer         Points-to Set");
         System.out.println("----------------------------------------");
-        for (AliasEntry entry : aliases.values()) {
-            System.out.println(entry);
+        for (int id = tracked.nextSetBit(0); id >= 0; id = tracked.nextSetBit(id + 1)) {
+            System.out.println(formatEntry(id));
         }
         
         if (!danglingPointers.isEmpty()) {
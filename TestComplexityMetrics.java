@@ -0,0 +1,119 @@
+import java.util.*;
+
+/**
+ * Checks ComplexityMetrics: essential complexity, NPath and nesting depth of
+ * the functions in test_metrics.c, and NPath saturation on generated
+ * functions whose path count does not fit in a long.
+ */
+public class TestComplexityMetrics 
+{
+    private static int checks = 0;
+    private static int failures = 0;
+
+    public static void main(String[] args) 
+    {
+        LexAn lex = new LexAn();
+        List<Token> tokens = lex.LexicalAnalysis("test_metrics.c");
+
+        try 
+        {
+            Parser parser = new Parser(tokens);
+            ProgramNode tree = (ProgramNode) parser.parse();
+
+            System.out.println("=== Metrics ===");
+            System.out.println(String.format("%-12s | %-10s | %-9s | %-6s | %s",
+                    "Function", "Cyclomatic", "Essential", "NPath", "Nesting"));
+            List<CFGResult> results = CFGBuilder.buildAndMeasure(tree);
+            for (CFGResult r : results) 
+            {
+                System.out.println(String.format("%-12s | %-10d | %-9d | %-6d | %d",
+                        r.cfg.functionName, r.complexity, r.essentialComplexity, r.npath, r.maxNesting));
+            }
+
+            System.out.println("\n=== Checks ===");
+            for (CFGResult r : results) 
+            {
+                expectTrue(r.cfg.functionName + ": essential <= cyclomatic", r.essentialComplexity <= r.complexity);
+            }
+            // function, essential, NPath, nesting
+            expectMetrics(tree, "straight", 1, 1, 0);
+            expectMetrics(tree, "early",    3, 3, 2);   // while + if left by the return
+            expectMetrics(tree, "tail",     1, 4, 1);   // returns on both tail branches; && and || add paths
+            expectMetrics(tree, "chain",    1, 5, 3);   // else-if stays on its level
+            expectMetrics(tree, "sequence", 1, 8, 1);   // 2 * 2 * 2
+
+            System.out.println("\n=== NPath saturation ===");
+            expect("62 sequential ifs: 2^62", ComplexityMetrics.of(sequentialIfs(62)).npath, 1L << 62);
+            expect("63 sequential ifs: saturated", ComplexityMetrics.of(sequentialIfs(63)).npath, Long.MAX_VALUE);
+            expect("100 sequential ifs: saturated", ComplexityMetrics.of(sequentialIfs(100)).npath, Long.MAX_VALUE);
+
+            // a saturated then-branch plus the implicit else must not wrap around
+            BlockNode body = new BlockNode();
+            body.statements.add(new IfStmtNode(new IdNode("a"), sequentialIfs(63).body, null));
+            FuncDeclNode wrapped = new FuncDeclNode("int", "wrapped", new ArrayList<>(), body);
+            expect("saturated branch + else: saturated", ComplexityMetrics.of(wrapped).npath, Long.MAX_VALUE);
+        } 
+        catch (Exception e) 
+        {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println();
+        if (failures > 0) {
+            System.out.println("✗ " + failures + " of " + checks + " checks failed.");
+            System.exit(1);
+        }
+        System.out.println("✓ All " + checks + " checks passed.");
+    }
+
+    private static void expectMetrics(ProgramNode tree, String name, int essential, long npath, int nesting) 
+    {
+        ComplexityMetrics m = ComplexityMetrics.of(function(tree, name));
+        expect(name + ": essential complexity", m.essentialComplexity, essential);
+        expect(name + ": NPath", m.npath, npath);
+        expect(name + ": max nesting", m.maxNesting, nesting);
+    }
+
+    private static FuncDeclNode function(ProgramNode tree, String name) 
+    {
+        for (ASTNode node : tree.declarations) {
+            if (node instanceof FuncDeclNode && ((FuncDeclNode) node).name.equals(name)) {
+                return (FuncDeclNode) node;
+            }
+        }
+        throw new IllegalStateException("no function " + name);
+    }
+
+    // int f(int a) { if (a > 0) { a = 0; } ... (count times) return a; }
+    private static FuncDeclNode sequentialIfs(int count) 
+    {
+        BlockNode body = new BlockNode();
+        for (int i = 0; i < count; i++) {
+            BlockNode then = new BlockNode();
+            then.statements.add(new BinaryExprNode(new IdNode("a"), "=", new LiteralNode("int", 0)));
+            body.statements.add(new IfStmtNode(
+                    new BinaryExprNode(new IdNode("a"), ">", new LiteralNode("int", i)), then, null));
+        }
+        body.statements.add(new ReturnStmtNode(new IdNode("a")));
+        return new FuncDeclNode("int", "ifs" + count, new ArrayList<>(), body);
+    }
+
+    private static void expect(String what, Object actual, Object expected) 
+    {
+        expectTrue(what + (Objects.equals(actual, expected) ? "" : " (got " + actual + ")"),
+                   Objects.equals(actual, expected));
+    }
+
+    private static void expectTrue(String what, boolean ok) 
+    {
+        checks++;
+        if (ok) {
+            System.out.println("  ok    " + what);
+        } else {
+            failures++;
+            System.out.println("  FAIL  " + what);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+import java.util.*;
+
+/**
+ * Checks DominatorTree on the functions of test_loops.c: dominance and
+ * post-dominance against the reachability definition (x dominates y iff y is
+ * unreachable from the root once x is removed), dominance frontiers against
+ * theirs, and a few known immediate dominators and frontiers.
+ */
+public class TestDominators 
+{
+    private static int checks = 0;
+    private static int failures = 0;
+
+    public static void main(String[] args) 
+    {
+        String filename = args.length > 0 ? args[0] : "test_loops.c";
+
+        LexAn lex = new LexAn();
+        List<Token> tokens = lex.LexicalAnalysis(filename);
+
+        try 
+        {
+            Parser parser = new Parser(tokens);
+            ProgramNode tree = (ProgramNode) parser.parse();
+            List<ControlFlowGraph> cfgs = CFGBuilder.buildCFGsFromProgram(tree);
+
+            System.out.println("=== Dominators vs. reachability ===");
+            for (ControlFlowGraph cfg : cfgs) 
+            {
+                int before = failures;
+                checkAgainstDefinition(cfg, cfg.dominatorTree());
+                checkAgainstDefinition(cfg, cfg.postDominatorTree());
+                System.out.printf("%-12s %s\n", cfg.functionName, failures == before ? "ok" : "FAILED");
+            }
+
+            System.out.println("\n=== Known results ===");
+            if (!filename.equals("test_loops.c")) 
+            {
+                System.out.println("(skipped: only defined for test_loops.c)");
+            } 
+            else 
+            {
+                checkKnownResults(cfgs);
+            }
+        } 
+        catch (Exception e) 
+        {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println();
+        if (failures > 0) {
+            System.out.println("✗ " + failures + " of " + checks + " checks failed.");
+            System.exit(1);
+        }
+        System.out.println("✓ All " + checks + " checks passed.");
+    }
+
+    private static void checkAgainstDefinition(ControlFlowGraph cfg, DominatorTree tree) 
+    {
+        boolean post = tree.isPostDominatorTree();
+        CFGNode root = post ? cfg.exit : cfg.entry;
+        String kind = post ? "post-dominates" : "dominates";
+
+        for (CFGNode x : cfg.allNodes) {
+            for (CFGNode y : cfg.allNodes) {
+                boolean expected = reaches(root, y, null, post)
+                        && (x == y || !reaches(root, y, x, post));
+                check(cfg.functionName + ": Node" + x.id + " " + kind + " Node" + y.id,
+                      tree.dominates(x, y) == expected);
+            }
+        }
+
+        // y is in DF(x) iff x dominates a predecessor of y but not y itself (strictly)
+        for (CFGNode x : cfg.allNodes) {
+            if (!tree.isReachable(x)) continue;
+            List<CFGNode> expected = new ArrayList<>();
+            for (CFGNode y : cfg.allNodes) {
+                for (CFGNode p : post ? y.successors : y.predecessors) {
+                    if (tree.dominates(x, p) && (x == y || !tree.dominates(x, y))) {
+                        expected.add(y);
+                        break;
+                    }
+                }
+            }
+            check(cfg.functionName + ": frontier of Node" + x.id + (post ? " (post)" : ""),
+                  tree.getFrontier(x).equals(expected));
+        }
+    }
+
+    // Whether to is reachable from from (backwards if reverse) without passing removed
+    private static boolean reaches(CFGNode from, CFGNode to, CFGNode removed, boolean reverse) 
+    {
+        if (from == removed) return false;
+        Set<CFGNode> seen = new HashSet<>();
+        Deque<CFGNode> work = new ArrayDeque<>();
+        work.push(from);
+        seen.add(from);
+        while (!work.isEmpty()) {
+            CFGNode v = work.pop();
+            if (v == to) return true;
+            for (CFGNode w : reverse ? v.predecessors : v.successors) {
+                if (w != removed && seen.add(w)) work.push(w);
+            }
+        }
+        return false;
+    }
+
+    private static void checkKnownResults(List<ControlFlowGraph> cfgs) 
+    {
+        ControlFlowGraph diamond = find(cfgs, "diamond");
+        DominatorTree dom = diamond.dominatorTree();
+        DominatorTree pdom = diamond.postDominatorTree();
+        CFGNode cond = node(diamond, "if ((a > 0))");
+        CFGNode merge = node(diamond, "merge");
+        CFGNode thenNode = node(diamond, "(r = 1)");
+        expect("diamond: ENTRY has no idom", dom.getImmediateDominator(diamond.entry), null);
+        expect("diamond: idom(merge) is the condition", dom.getImmediateDominator(merge), cond);
+        expect("diamond: DF(then) = {merge}", dom.getFrontier(thenNode), List.of(merge));
+        expect("diamond: DF(condition) is empty", dom.getFrontier(cond), List.of());
+        expect("diamond: ipdom(condition) is merge", pdom.getImmediateDominator(cond), merge);
+        expect("diamond: ipdom(return) is EXIT", pdom.getImmediateDominator(node(diamond, "return r")), diamond.exit);
+        expect("diamond: post-DF(then) = {condition}", pdom.getFrontier(thenNode), List.of(cond));
+
+        ControlFlowGraph nested = find(cfgs, "nested");
+        dom = nested.dominatorTree();
+        CFGNode outer = node(nested, "while ((i < n))");
+        CFGNode inner = node(nested, "while ((j < n))");
+        expect("nested: DF(inner header) = {outer header, inner header}", dom.getFrontier(inner), List.of(outer, inner));
+        expect("nested: idom(inner body) is the inner header", dom.getImmediateDominator(node(nested, "(j = (j + 1))")), inner);
+        expectTrue("nested: outer header dominates the inner body", dom.dominates(outer, node(nested, "(j = (j + 1))")));
+
+        // Both branches return: the merge node has no predecessor
+        ControlFlowGraph both = find(cfgs, "both");
+        dom = both.dominatorTree();
+        merge = node(both, "merge");
+        expectTrue("both: merge is unreachable", !dom.isReachable(merge));
+        expect("both: unreachable merge has no idom", dom.getImmediateDominator(merge), null);
+        expectTrue("both: ENTRY does not dominate unreachable merge", !dom.dominates(both.entry, merge));
+    }
+
+    static ControlFlowGraph find(List<ControlFlowGraph> cfgs, String functionName) 
+    {
+        for (ControlFlowGraph cfg : cfgs) {
+            if (cfg.functionName.equals(functionName)) return cfg;
+        }
+        throw new IllegalStateException("no function " + functionName);
+    }
+
+    /** First node of cfg with the given label. */
+    static CFGNode node(ControlFlowGraph cfg, String label) 
+    {
+        for (CFGNode n : cfg.allNodes) {
+            if (n.getLabel().equals(label)) return n;
+        }
+        throw new IllegalStateException(cfg.functionName + " has no node '" + label + "'");
+    }
+
+    private static void expect(String what, Object actual, Object expected) 
+    {
+        boolean ok = Objects.equals(actual, expected);
+        check(what + (ok ? "" : " (got " + actual + ")"), ok);
+        if (ok) System.out.println("  ok    " + what);
+    }
+
+    private static void expectTrue(String what, boolean ok) 
+    {
+        check(what, ok);
+        if (ok) System.out.println("  ok    " + what);
+    }
+
+    private static void check(String what, boolean ok) 
+    {
+        checks++;
+        if (!ok) {
+            failures++;
+            System.out.println("  FAIL  " + what);
+        }
+    }
+}
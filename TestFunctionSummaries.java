@@ -0,0 +1,107 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * Checks that cached FunctionSummaries only cross file boundaries for exported
+ * definitions: test_summaries_b.c calls release() (static in
+ * test_summaries_a.c) and dispose() (exported by test_summaries_a.c, and
+ * differently by test_summaries_c.c), then frees both pointers itself.
+ */
+public class TestFunctionSummaries 
+{
+    private static int checks = 0;
+    private static int failures = 0;
+
+    public static void main(String[] args) 
+    {
+        try 
+        {
+            File cache = File.createTempFile("summaries", ".cache");
+            cache.deleteOnExit();
+            String cacheFile = cache.getPath();
+            cache.delete();
+
+            System.out.println("=== b alone ===");
+            FunctionSummaries summaries = summarize(cacheFile, "test_summaries_b.c");
+            expect("release unknown", summaries.get("release"), null);
+            expect("dispose unknown", summaries.get("dispose"), null);
+            expect("no double free", doubleFrees("test_summaries_b.c", summaries), Collections.emptyList());
+
+            System.out.println("\n=== a, then b ===");
+            summarize(cacheFile, "test_summaries_a.c");
+            summaries = summarize(cacheFile, "test_summaries_b.c");
+            expect("static release not exported", summaries.get("release"), null);
+            expectTrue("dispose frees its argument", summaries.freesParam("dispose", 0));
+            expect("double free of r only", doubleFrees("test_summaries_b.c", summaries), Arrays.asList("r"));
+
+            System.out.println("\n=== a, c, then b ===");
+            summarize(cacheFile, "test_summaries_c.c");
+            summaries = summarize(cacheFile, "test_summaries_b.c");
+            expect("ambiguous dispose unknown", summaries.get("dispose"), null);
+            expect("no double free", doubleFrees("test_summaries_b.c", summaries), Collections.emptyList());
+
+            System.out.println("\n=== a defines its own ===");
+            summaries = summarize(cacheFile, "test_summaries_a.c");
+            expectTrue("local static release frees", summaries.freesParam("release", 0));
+            expectTrue("local dispose frees", summaries.freesParam("dispose", 0));
+        } 
+        catch (Exception e) 
+        {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println();
+        if (failures > 0) {
+            System.out.println("✗ " + failures + " of " + checks + " checks failed.");
+            System.exit(1);
+        }
+        System.out.println("✓ All " + checks + " checks passed.");
+    }
+
+    // What Main does for one file: load the cache, summarize the file, save
+    private static FunctionSummaries summarize(String cacheFile, String filename) 
+    {
+        FunctionSummaries summaries = FunctionSummaries.load(cacheFile);
+        summaries.summarizeProgram(parse(filename), filename);
+        summaries.save(cacheFile);
+        return summaries;
+    }
+
+    private static List<String> doubleFrees(String filename, FunctionSummaries summaries) 
+    {
+        List<String> pointers = new ArrayList<>();
+        SemanticAnalyzer analyzer = new SemanticAnalyzer();
+        analyzer.setFunctionSummaries(summaries);
+        analyzer.setEnabledRules(Collections.singleton(SemanticRules.MEMORY));
+        analyzer.addDiagnosticListener((kind, location, diagArgs) -> {
+            if (kind == DiagnosticKind.DOUBLE_FREE) pointers.add(String.valueOf(diagArgs[0]));
+        });
+        analyzer.analyze(parse(filename));
+        return pointers;
+    }
+
+    private static ProgramNode parse(String filename) 
+    {
+        List<Token> tokens = new LexAn().LexicalAnalysis(filename);
+        return (ProgramNode) new Parser(tokens).parse();
+    }
+
+    private static void expect(String what, Object actual, Object expected) 
+    {
+        expectTrue(what + (Objects.equals(actual, expected) ? "" : " (got " + actual + ")"),
+                   Objects.equals(actual, expected));
+    }
+
+    private static void expectTrue(String what, boolean ok) 
+    {
+        checks++;
+        if (ok) {
+            System.out.println("  ok    " + what);
+        } else {
+            failures++;
+            System.out.println("  FAIL  " + what);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+import java.util.*;
+
+/**
+ * Checks LoopNest on the functions of test_loops.c: loop counts, nesting
+ * (parents, children, depths), membership, and which loops contain allocation
+ * calls, on both the statement-level and the basic-block CFGs.
+ */
+public class TestLoopNest 
+{
+    private static int checks = 0;
+    private static int failures = 0;
+
+    public static void main(String[] args) 
+    {
+        LexAn lex = new LexAn();
+        List<Token> tokens = lex.LexicalAnalysis("test_loops.c");
+
+        try 
+        {
+            Parser parser = new Parser(tokens);
+            ProgramNode tree = (ProgramNode) parser.parse();
+            List<ControlFlowGraph> cfgs = CFGBuilder.buildCFGsFromProgram(tree);
+
+            System.out.println("=== Loops ===");
+            for (ControlFlowGraph cfg : cfgs) 
+            {
+                LoopNest loops = LoopNest.analyze(cfg);
+                System.out.printf("%-12s %s\n", cfg.functionName, loops.getLoops());
+            }
+
+            System.out.println("\n=== Checks ===");
+            checkDiamond(find(cfgs, "diamond"));
+            checkNested(find(cfgs, "nested"));
+            checkAllocating(find(cfgs, "allocating"));
+            checkEarly(find(cfgs, "early"));
+        } 
+        catch (Exception e) 
+        {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println();
+        if (failures > 0) {
+            System.out.println("✗ " + failures + " of " + checks + " checks failed.");
+            System.exit(1);
+        }
+        System.out.println("✓ All " + checks + " checks passed.");
+    }
+
+    private static void checkDiamond(ControlFlowGraph cfg) 
+    {
+        LoopNest loops = LoopNest.analyze(cfg);
+        expect("diamond: no loops", loops.getLoopCount(), 0);
+        expect("diamond: max depth 0", loops.getMaxDepth(), 0);
+    }
+
+    private static void checkNested(ControlFlowGraph cfg) 
+    {
+        LoopNest loops = LoopNest.analyze(cfg);
+        CFGNode outerHeader = node(cfg, "while ((i < n))");
+        CFGNode innerHeader = node(cfg, "while ((j < n))");
+        NaturalLoop outer = loops.getLoopFor(outerHeader);
+        NaturalLoop inner = loops.getLoopFor(innerHeader);
+
+        expect("nested: 2 loops", loops.getLoopCount(), 2);
+        expect("nested: max depth 2", loops.getMaxDepth(), 2);
+        expect("nested: outer loop header", outer.header, outerHeader);
+        expect("nested: inner loop header", inner.header, innerHeader);
+        expect("nested: inner parent is outer", inner.parent, outer);
+        expect("nested: outer children", outer.children, List.of(inner));
+        expect("nested: outer depth", outer.depth, 1);
+        expect("nested: inner depth", inner.depth, 2);
+        expect("nested: inner size (header + body)", inner.size(), 2);
+        expectTrue("nested: outer contains inner body", outer.contains(node(cfg, "(j = (j + 1))")));
+        expect("nested: depth of inner body", loops.getDepth(node(cfg, "(j = (j + 1))")), 2);
+        expect("nested: depth of outer body", loops.getDepth(node(cfg, "(i = (i + 1))")), 1);
+        expect("nested: depth of return", loops.getDepth(node(cfg, "return i")), 0);
+        expect("nested: no allocating loops", loops.getAllocatingLoopCount(), 0);
+    }
+
+    private static void checkAllocating(ControlFlowGraph cfg) 
+    {
+        LoopNest loops = LoopNest.analyze(cfg);
+        NaturalLoop outer = loops.getLoopFor(node(cfg, "while ((n > 0))"));
+        NaturalLoop inner = loops.getLoopFor(node(cfg, "while ((n > 10))"));
+        NaturalLoop last = loops.getLoopFor(node(cfg, "while ((n < 0))"));
+
+        expect("allocating: 3 loops", loops.getLoopCount(), 3);
+        expect("allocating: max depth 2", loops.getMaxDepth(), 2);
+        expect("allocating: 2 allocating loops", loops.getAllocatingLoopCount(), 2);
+        expectTrue("allocating: inner loop calls malloc", inner.containsAllocation);
+        expectTrue("allocating: enclosing loop inherits it", outer.containsAllocation);
+        expectTrue("allocating: sibling loop does not allocate", !last.containsAllocation);
+        expect("allocating: sibling loop is outermost", last.parent, null);
+
+        // Custom allocator sets
+        expect("allocating: {free} matches the inner loop too",
+               LoopNest.analyze(cfg, Set.of("free")).getAllocatingLoopCount(), 2);
+        expect("allocating: {calloc} matches nothing",
+               LoopNest.analyze(cfg, Set.of("calloc")).getAllocatingLoopCount(), 0);
+
+        // Basic blocks: the calls sit inside folded statement lists
+        LoopNest blocks = LoopNest.analyze(cfg.coalesceBlocks());
+        expect("allocating (blocks): 3 loops", blocks.getLoopCount(), 3);
+        expect("allocating (blocks): max depth 2", blocks.getMaxDepth(), 2);
+        expect("allocating (blocks): 2 allocating loops", blocks.getAllocatingLoopCount(), 2);
+    }
+
+    private static void checkEarly(ControlFlowGraph cfg) 
+    {
+        LoopNest loops = LoopNest.analyze(cfg);
+        CFGNode header = node(cfg, "while ((n > 0))");
+        expect("early: 1 loop", loops.getLoopCount(), 1);
+        expect("early: the if is in the loop", loops.getLoopFor(node(cfg, "if ((n == 5))")).header, header);
+        expect("early: the early return leaves the loop", loops.getLoopFor(node(cfg, "return 1")), null);
+    }
+
+    private static ControlFlowGraph find(List<ControlFlowGraph> cfgs, String functionName) 
+    {
+        for (ControlFlowGraph cfg : cfgs) {
+            if (cfg.functionName.equals(functionName)) return cfg;
+        }
+        throw new IllegalStateException("no function " + functionName);
+    }
+
+    /** First node of cfg with the given label. */
+    private static CFGNode node(ControlFlowGraph cfg, String label) 
+    {
+        for (CFGNode n : cfg.allNodes) {
+            if (n.getLabel().equals(label)) return n;
+        }
+        throw new IllegalStateException(cfg.functionName + " has no node '" + label + "'");
+    }
+
+    private static void expect(String what, Object actual, Object expected) 
+    {
+        expectTrue(what + (Objects.equals(actual, expected) ? "" : " (got " + actual + ")"),
+                   Objects.equals(actual, expected));
+    }
+
+    private static void expectTrue(String what, boolean ok) 
+    {
+        checks++;
+        if (ok) {
+            System.out.println("  ok    " + what);
+        } else {
+            failures++;
+            System.out.println("  FAIL  " + what);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+#include <stdlib.h>
+
+int diamond(int a) {
+    int r = 0;
+    if (a > 0) {
+        r = 1;
+    } else {
+        r = 2;
+    }
+    return r;
+}
+
+int nested(int n) {
+    int i = 0;
+    while (i < n) {
+        int j = 0;
+        while (j < n) {
+            j = j + 1;
+        }
+        i = i + 1;
+    }
+    return i;
+}
+
+int allocating(int n) {
+    int *p;
+    while (n > 0) {
+        while (n > 10) {
+            p = malloc(4);
+            free(p);
+            n = n - 1;
+        }
+        n = n - 1;
+    }
+    while (n < 0) {
+        n = n + 1;
+    }
+    return n;
+}
+
+int early(int n) {
+    while (n > 0) {
+        if (n == 5) {
+            return 1;
+        }
+        n = n - 1;
+    }
+    return 0;
+}
+
+int both(int a) {
+    if (a > 0) {
+        return 1;
+    } else {
+        return 2;
+    }
+}
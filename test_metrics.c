@@ -0,0 +1,50 @@
+int straight(int a) {
+    int b = a + 1;
+    return b;
+}
+
+int early(int n) {
+    while (n > 0) {
+        if (n == 5) {
+            return 1;
+        }
+        n = n - 1;
+    }
+    return 0;
+}
+
+int tail(int a, int b) {
+    if (a && b || a) {
+        return 2;
+    } else {
+        return 3;
+    }
+}
+
+int chain(int a) {
+    if (a) {
+        if (a > 1) {
+            a = 2;
+        } else if (a > 2) {
+            a = 3;
+        } else {
+            if (a > 3) {
+                a = 4;
+            }
+        }
+    }
+    return a;
+}
+
+int sequence(int a) {
+    if (a > 1) {
+        a = a + 1;
+    }
+    if (a > 2) {
+        a = a + 2;
+    }
+    if (a > 3) {
+        a = a + 3;
+    }
+    return a;
+}
@@ -0,0 +1,7 @@
+static void release(int* p) {
+    free(p);
+}
+
+void dispose(int* p) {
+    free(p);
+}
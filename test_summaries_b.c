@@ -0,0 +1,13 @@
+void release(int* p);
+void dispose(int* p);
+
+int main() {
+    int* q = malloc(4);
+    release(q);
+    free(q);
+
+    int* r = malloc(4);
+    dispose(r);
+    free(r);
+    return 0;
+}
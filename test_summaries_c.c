@@ -0,0 +1,5 @@
+int* kept;
+
+void dispose(int* p) {
+    kept = p;
+}